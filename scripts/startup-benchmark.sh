@@ -0,0 +1,78 @@
+#!/usr/bin/env bash
+# Compares time-to-first-request and resident memory of the JVM and native builds.
+#
+#   mvn -DskipTests package                  # JVM build  -> target/rbac-0.0.1-SNAPSHOT.war
+#   mvn -Pnative -DskipTests native:compile  # native     -> target/rbac
+#   scripts/startup-benchmark.sh [runs]
+#
+# Both builds start with the same arguments, so point them at a reachable database, e.g.
+#   APP_ARGS="--spring.datasource.url=jdbc:mysql://localhost:3306/rbac_db --spring.datasource.password=secret"
+# Linux only (reads VmRSS from /proc).
+set -euo pipefail
+
+RUNS="${1:-5}"
+PORT="${PORT:-18080}"
+PROBE_PATH="${PROBE_PATH:-/api/public/test}"
+WARM_REQUESTS="${WARM_REQUESTS:-200}"
+JAR="${JAR:-target/rbac-0.0.1-SNAPSHOT.war}"
+NATIVE="${NATIVE:-target/rbac}"
+JAVA_OPTS="${JAVA_OPTS:-}"
+APP_ARGS="${APP_ARGS:-}"
+
+now_ms() { date +%s%3N; }
+rss_mb() { awk '/VmRSS/ { printf "%.0f", $2 / 1024 }' "/proc/$1/status"; }
+
+# Prints "<ms to first 200> <RSS MB at first response> <RSS MB after warm-up>"
+measure() {
+  local start pid url elapsed first_rss warm_rss
+  url="http://localhost:${PORT}${PROBE_PATH}"
+  start=$(now_ms)
+  # shellcheck disable=SC2086
+  "$@" --server.port="$PORT" $APP_ARGS >/dev/null 2>&1 &
+  pid=$!
+  until curl -fs -o /dev/null "$url"; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "process exited before answering $url" >&2
+      exit 1
+    fi
+    sleep 0.01
+  done
+  elapsed=$(( $(now_ms) - start ))
+  first_rss=$(rss_mb "$pid")
+  for _ in $(seq "$WARM_REQUESTS"); do
+    curl -fs -o /dev/null "$url"
+  done
+  warm_rss=$(rss_mb "$pid")
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  echo "$elapsed $first_rss $warm_rss"
+}
+
+# Median of the values in column $1 of stdin
+median() { awk -v c="$1" '{ print $c }' | sort -n | awk '{ v[NR] = $1 } END { print v[int((NR + 1) / 2)] }'; }
+
+report() {
+  local name=$1 results=$2
+  printf "%-8s %14s %16s %18s\n" "$name" \
+    "$(median 1 <<<"$results") ms" "$(median 2 <<<"$results") MB" "$(median 3 <<<"$results") MB"
+}
+
+declare -A modes=()
+# shellcheck disable=SC2206
+[[ -f "$JAR" ]] && modes[jvm]="java $JAVA_OPTS -jar $JAR"
+[[ -x "$NATIVE" ]] && modes[native]="$NATIVE"
+if [[ ${#modes[@]} -eq 0 ]]; then
+  echo "Neither $JAR nor $NATIVE exists, build them first" >&2
+  exit 1
+fi
+
+printf "%-8s %14s %16s %18s\n" "build" "first request" "RSS at start" "RSS after ${WARM_REQUESTS} req"
+for mode in jvm native; do
+  [[ -n "${modes[$mode]:-}" ]] || continue
+  results=""
+  for _ in $(seq "$RUNS"); do
+    # shellcheck disable=SC2086
+    results+="$(measure ${modes[$mode]})"$'\n'
+  done
+  report "$mode" "${results%$'\n'}"
+done
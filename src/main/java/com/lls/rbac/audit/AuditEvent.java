@@ -0,0 +1,12 @@
+package com.lls.rbac.audit;
+
+public record AuditEvent(long timestamp, Type type, String username, String remoteAddress, String detail) {
+
+    public enum Type {
+        LOGIN_SUCCESS,
+        LOGIN_FAILURE,
+        LOGIN_LOCKED,
+        LOGOUT,
+        ACCESS_DENIED
+    }
+}
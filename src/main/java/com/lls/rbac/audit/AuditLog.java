@@ -0,0 +1,158 @@
+package com.lls.rbac.audit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Security audit trail. Request threads only enqueue into a lock-free ring buffer; one writer thread drains it
+// into memory-mapped NDJSON segments and forces them to disk every fsync interval. When the buffer is full a
+// producer waits at most max-block-ms for room and then drops the event, so a slow disk can delay a request
+// by a bounded amount but never stall it. Dropped events are counted and reported.
+@Component
+public class AuditLog {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final long fsyncIntervalNanos;
+    private final long maxBlockNanos;
+    private final AuditRingBuffer buffer;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public AuditLog(@Value("${rbac.audit.enabled:true}") boolean enabled,
+                    @Value("${rbac.audit.directory:audit}") String directory,
+                    @Value("${rbac.audit.segment-size-bytes:67108864}") int segmentSize,
+                    @Value("${rbac.audit.buffer-capacity:16384}") int bufferCapacity,
+                    @Value("${rbac.audit.fsync-interval-ms:1000}") long fsyncIntervalMs,
+                    @Value("${rbac.audit.max-block-ms:5}") long maxBlockMs) {
+        if (enabled && segmentSize < AuditSegmentWriter.MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("rbac.audit.segment-size-bytes must be at least "
+                    + AuditSegmentWriter.MAX_RECORD_BYTES + ", the size of the largest record: " + segmentSize);
+        }
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs);
+        this.maxBlockNanos = TimeUnit.MILLISECONDS.toNanos(maxBlockMs);
+        this.buffer = new AuditRingBuffer(bufferCapacity);
+    }
+
+    public void record(AuditEvent.Type type, String username, String remoteAddress, String detail) {
+        if (!running) {
+            return;
+        }
+        AuditEvent event = new AuditEvent(System.currentTimeMillis(), type, username, remoteAddress, detail);
+        if (buffer.offer(event)) {
+            return;
+        }
+
+        // Back-pressure: give the writer a bounded amount of time to make room
+        long deadline = System.nanoTime() + maxBlockNanos;
+        LockSupport.unpark(writerThread);
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+            if (buffer.offer(event)) {
+                return;
+            }
+        }
+        dropped.incrementAndGet();
+    }
+
+    public long droppedEvents() {
+        return dropped.get();
+    }
+
+    public long writtenEvents() {
+        return written.get();
+    }
+
+    public long pendingEvents() {
+        return buffer.size();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // False when disabled, not started yet, or the writer stopped on an error
+    public boolean isRunning() {
+        return running;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        AuditSegmentWriter writer = new AuditSegmentWriter(directory, segmentSize);
+        running = true;
+        writerThread = new Thread(() -> drain(writer), "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Audit log writing to {}", writer.currentSegment().toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void drain(AuditSegmentWriter writer) {
+        long lastForce = System.nanoTime();
+        long reportedDrops = 0;
+        try (writer) {
+            while (running || buffer.size() > 0) {
+                int count = 0;
+                AuditEvent event;
+                while (count < BATCH_SIZE && (event = buffer.poll()) != null) {
+                    writer.append(event);
+                    count++;
+                }
+                written.addAndGet(count);
+
+                long now = System.nanoTime();
+                if (now - lastForce >= fsyncIntervalNanos) {
+                    writer.force();
+                    lastForce = now;
+                    long drops = dropped.get();
+                    if (drops != reportedDrops) {
+                        log.warn("Audit buffer overflowed, {} events dropped so far", drops);
+                        reportedDrops = drops;
+                    }
+                }
+                if (count == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Producers stop enqueueing and health reports the audit log as down, instead of every event
+            // waiting max-block-ms on a buffer nobody drains
+            running = false;
+            log.error("Audit log writer stopped: {}", e.toString());
+        }
+    }
+}
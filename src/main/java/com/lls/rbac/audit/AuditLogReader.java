@@ -0,0 +1,167 @@
+package com.lls.rbac.audit;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Offline exporter for the audit segments. Depends on nothing but the JDK so it can run straight from the
+// build output on a host without the application:
+//   java -cp target/classes com.lls.rbac.audit.AuditLogReader <dir> [--type T] [--user U] [--from ISO] [--to ISO]
+// Matching records are printed as NDJSON in the order they were written.
+public final class AuditLogReader {
+
+    private final Path directory;
+    private String type;
+    private String user;
+    private Instant from;
+    private Instant to;
+
+    public AuditLogReader(Path directory) {
+        this.directory = directory;
+    }
+
+    public AuditLogReader type(String type) {
+        this.type = type;
+        return this;
+    }
+
+    public AuditLogReader user(String user) {
+        this.user = user;
+        return this;
+    }
+
+    public AuditLogReader from(Instant from) {
+        this.from = from;
+        return this;
+    }
+
+    public AuditLogReader to(Instant to) {
+        this.to = to;
+        return this;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 == 0) {
+            System.err.println("Usage: AuditLogReader <dir> [--type T] [--user U] [--from ISO-8601] [--to ISO-8601]");
+            System.exit(2);
+        }
+        AuditLogReader reader = new AuditLogReader(Path.of(args[0]));
+        for (int i = 1; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--type" -> reader.type(args[i + 1]);
+                case "--user" -> reader.user(args[i + 1]);
+                case "--from" -> reader.from(Instant.parse(args[i + 1]));
+                case "--to" -> reader.to(Instant.parse(args[i + 1]));
+                default -> {
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false, StandardCharsets.UTF_8);
+        reader.read(out::println);
+        out.flush();
+    }
+
+    public void read(Consumer<String> sink) throws IOException {
+        for (Path segment : segments()) {
+            readSegment(segment, sink);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(AuditSegmentWriter.PREFIX) && name.endsWith(AuditSegmentWriter.SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // Stops at the first NUL byte: the unwritten tail of a segment that was never closed
+    private void readSegment(Path segment, Consumer<String> sink) throws IOException {
+        try (InputStream in = Files.newInputStream(segment)) {
+            byte[] chunk = new byte[1 << 16];
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    byte b = chunk[i];
+                    if (b == 0) {
+                        return;
+                    }
+                    if (b == '\n') {
+                        accept(line.toString(StandardCharsets.UTF_8), sink);
+                        line.reset();
+                    } else {
+                        line.write(b);
+                    }
+                }
+            }
+        }
+    }
+
+    private void accept(String record, Consumer<String> sink) {
+        if (record.isEmpty()) {
+            return;
+        }
+        if (type != null && !type.equals(field(record, "type"))) {
+            return;
+        }
+        if (user != null && !user.equals(field(record, "user"))) {
+            return;
+        }
+        if (from != null || to != null) {
+            Instant ts = Instant.parse(field(record, "ts"));
+            if ((from != null && ts.isBefore(from)) || (to != null && !ts.isBefore(to))) {
+                return;
+            }
+        }
+        sink.accept(record);
+    }
+
+    // Records are flat objects of string fields written by AuditSegmentWriter, so a scan for "name":"
+    // is enough; escapes are resolved in the value
+    static String field(String record, String name) {
+        String key = "\"" + name + "\":\"";
+        int start = record.indexOf(key);
+        if (start < 0) {
+            return null;
+        }
+        StringBuilder value = new StringBuilder();
+        for (int i = start + key.length(); i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c == '\\' && i + 1 < record.length()) {
+                char escaped = record.charAt(++i);
+                switch (escaped) {
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        value.append((char) Integer.parseInt(record.substring(i + 1, i + 5), 16));
+                        i += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            } else {
+                value.append(c);
+            }
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,135 @@
+package com.lls.rbac.audit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+// Appends NDJSON records to memory-mapped segment files of a fixed size. A segment is sized up front and
+// mapped once, so an append is a memory copy; durability comes from force() calls made by the owner.
+// Closed segments are truncated to their content. A segment left behind by a crash keeps its zero-filled
+// tail, which readers treat as the end of the data.
+final class AuditSegmentWriter implements AutoCloseable {
+
+    static final String PREFIX = "audit-";
+    static final String SUFFIX = ".ndjson";
+
+    // Keeps one oversized detail from spilling a record across segments
+    private static final int MAX_FIELD_LENGTH = 512;
+
+    // Largest encoded record: three fields of characters escaped to at most 6 bytes each, plus the keys,
+    // timestamp and type. A segment must hold at least one.
+    static final int MAX_RECORD_BYTES = 3 * (MAX_FIELD_LENGTH * 6 + 16) + 128;
+
+    private final Path directory;
+    private final int segmentSize;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private Path current;
+    private int counter;
+    private boolean dirty;
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    AuditSegmentWriter(Path directory, int segmentSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        openSegment();
+    }
+
+    void append(AuditEvent event) throws IOException {
+        byte[] record = encode(event);
+        if (record.length > buffer.remaining()) {
+            closeSegment();
+            openSegment();
+        }
+        buffer.put(record);
+        dirty = true;
+    }
+
+    // Flushes written pages to disk; skipped when nothing was appended since the last call
+    void force() {
+        if (dirty) {
+            buffer.force();
+            dirty = false;
+        }
+    }
+
+    Path currentSegment() {
+        return current;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeSegment();
+    }
+
+    // Names sort in creation order; another writer on the same directory may have taken a name already
+    private void openSegment() throws IOException {
+        while (true) {
+            current = directory.resolve(String.format("%s%013d-%04d%s", PREFIX, System.currentTimeMillis(), counter++ % 10000, SUFFIX));
+            try {
+                channel = FileChannel.open(current, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                break;
+            } catch (FileAlreadyExistsException e) {
+                // try the next name
+            }
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    private void closeSegment() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        int length = buffer.position();
+        buffer.force();
+        dirty = false;
+        channel.truncate(length);
+        channel.close();
+        channel = null;
+    }
+
+    private byte[] encode(AuditEvent event) {
+        line.setLength(0);
+        line.append("{\"ts\":\"").append(Instant.ofEpochMilli(event.timestamp())).append('"');
+        line.append(",\"type\":\"").append(event.type().name()).append('"');
+        field("user", event.username());
+        field("ip", event.remoteAddress());
+        field("detail", event.detail());
+        line.append("}\n");
+        return line.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void field(String name, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append(",\"").append(name).append("\":\"");
+        int length = Math.min(value.length(), MAX_FIELD_LENGTH);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,99 @@
+package com.lls.rbac.config;
+
+import com.lls.rbac.audit.AuditEvent;
+import com.lls.rbac.dto.ApiResponse;
+import com.lls.rbac.dto.AuthorizationCheckRequestDTO;
+import com.lls.rbac.dto.BulkAssignmentRequestDTO;
+import com.lls.rbac.dto.IntrospectRequestDTO;
+import com.lls.rbac.dto.KeysetPageDTO;
+import com.lls.rbac.dto.LoginRequestDTO;
+import com.lls.rbac.dto.RegisterRequestDTO;
+import com.lls.rbac.entity.AuthorizationVersion;
+import com.lls.rbac.entity.Permission;
+import com.lls.rbac.entity.Role;
+import com.lls.rbac.entity.User;
+import com.lls.rbac.repository.projection.RoleMemberView;
+import com.lls.rbac.repository.projection.RoleSummaryView;
+import com.lls.rbac.repository.projection.UserRoleView;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.sql.Connection;
+import java.util.List;
+
+// Reflection and resource metadata for the native image (mvn -Pnative native:compile). Spring AOT covers
+// beans, repositories and most of JPA; this adds what it cannot infer: entities read reflectively by
+// Hibernate, JJWT implementation classes that jjwt-api loads by name, the DTOs Jackson binds
+// through ResponseEntity<?> signatures, and JDK proxies created at runtime. Ignored on the JVM.
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeRuntimeHints.Registrar.class)
+public class NativeRuntimeHints {
+
+    private static final List<Class<?>> ENTITIES = List.of(User.class, Role.class, Permission.class, AuthorizationVersion.class);
+
+    private static final List<Class<?>> JSON_TYPES = List.of(
+            ApiResponse.class,
+            AuthorizationCheckRequestDTO.class,
+            AuthorizationCheckRequestDTO.Check.class,
+            BulkAssignmentRequestDTO.class,
+            IntrospectRequestDTO.class,
+            KeysetPageDTO.class,
+            LoginRequestDTO.class,
+            RegisterRequestDTO.class,
+            RoleMemberView.class,
+            RoleSummaryView.class,
+            UserRoleView.class,
+            AuditEvent.class);
+
+    // jjwt-api instantiates these through Classes.newInstance / Classes.forName
+    static final List<String> JJWT_TYPES = List.of(
+            "io.jsonwebtoken.impl.DefaultClaimsBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtHeaderBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.io.StandardCompressionAlgorithms",
+            "io.jsonwebtoken.impl.security.DefaultDynamicJwkBuilder",
+            "io.jsonwebtoken.impl.security.DefaultJwkParserBuilder",
+            "io.jsonwebtoken.impl.security.DefaultJwkSetBuilder",
+            "io.jsonwebtoken.impl.security.DefaultJwkSetParserBuilder",
+            "io.jsonwebtoken.impl.security.DefaultKeyOperationBuilder",
+            "io.jsonwebtoken.impl.security.DefaultKeyOperationPolicyBuilder",
+            "io.jsonwebtoken.impl.security.JwksBridge",
+            "io.jsonwebtoken.impl.security.KeysBridge",
+            "io.jsonwebtoken.impl.security.StandardCurves",
+            "io.jsonwebtoken.impl.security.StandardEncryptionAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardHashAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardKeyAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardKeyOperations",
+            "io.jsonwebtoken.impl.security.StandardSecureDigestAlgorithms",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer");
+
+    static class Registrar implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (Class<?> entity : ENTITIES) {
+                hints.reflection().registerType(entity, MemberCategory.values());
+            }
+
+            BindingReflectionHintsRegistrar bindings = new BindingReflectionHintsRegistrar();
+            bindings.registerReflectionHints(hints.reflection(), JSON_TYPES.toArray(new Class<?>[0]));
+
+            for (String type : JJWT_TYPES) {
+                hints.reflection().registerTypeIfPresent(classLoader, type,
+                        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.DECLARED_FIELDS);
+            }
+            // JJWT finds its JSON (de)serializer and compression codecs through ServiceLoader
+            hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+
+            // ReplicaRoutingDataSource wraps replica connections to count them
+            hints.proxies().registerJdkProxy(Connection.class);
+        }
+    }
+}
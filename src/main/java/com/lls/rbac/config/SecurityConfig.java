@@ -1,10 +1,22 @@
 package com.lls.rbac.config;
 
+import com.lls.rbac.audit.AuditLog;
+import com.lls.rbac.entity.User;
 import com.lls.rbac.jwt.JwtFilter;
+import com.lls.rbac.limit.ConcurrencyLimitFilter;
+import com.lls.rbac.limit.ConcurrencyLimits;
+import com.lls.rbac.security.AuditingAccessDeniedHandler;
+import com.lls.rbac.security.AuthenticatedUser;
+import com.lls.rbac.security.CorsPreflightFilter;
 import com.lls.rbac.security.CustomUserDetailsService;
+import com.lls.rbac.security.PasswordHashingCalibrator;
+import com.lls.rbac.security.PublicRouteRegistry;
+import com.lls.rbac.service.UserActivityTracker;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -14,7 +26,10 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -25,6 +40,7 @@ import com.lls.rbac.jwt.JwtUtil;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
@@ -34,6 +50,24 @@ public class SecurityConfig {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private PublicRouteRegistry publicRouteRegistry;
+
+    @Autowired
+    private UserActivityTracker userActivityTracker;
+
+    @Autowired
+    private PasswordHashingCalibrator passwordHashingCalibrator;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ConcurrencyLimits concurrencyLimits;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         return http
@@ -43,23 +77,32 @@ public class SecurityConfig {
                 .addFilterBefore(jwtFilter(), UsernamePasswordAuthenticationFilter.class)
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
-                        .requestMatchers("/api/auth/**").permitAll()
-                        .requestMatchers("/swagger-ui/**", "/api-docs/**", "/swagger-ui.html").permitAll()
-                        .requestMatchers("/api/public/**").permitAll()
+                        .requestMatchers(publicRouteRegistry.protectedPatterns()).authenticated()
+                        .requestMatchers(publicRouteRegistry.patterns()).permitAll()
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .requestMatchers("/api/moderator/**").hasAnyRole("ADMIN", "MODERATOR")
                         .requestMatchers("/api/**").authenticated()
                         .anyRequest().authenticated()
                 )
+                .exceptionHandling(exceptions -> exceptions.accessDeniedHandler(new AuditingAccessDeniedHandler(auditLog)))
                 .authenticationProvider(authenticationProvider())
                 .build();
     }
 
     @Bean
     public DaoAuthenticationProvider authenticationProvider() {
-        DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
+        DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider() {
+            @Override
+            protected Authentication createSuccessAuthentication(Object principal, Authentication authentication, UserDetails user) {
+                // The password upgrade needs the entity; the authentication handed back only needs the principal
+                Object authenticated = user instanceof User entity ? AuthenticatedUser.from(entity) : principal;
+                return super.createSuccessAuthentication(authenticated, authentication, user);
+            }
+        };
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Rehashes outdated hashes with the current encoder after a successful login
+        authProvider.setUserDetailsPasswordService(userDetailsService);
         return authProvider;
     }
 
@@ -73,12 +116,38 @@ public class SecurityConfig {
         JwtFilter filter = new JwtFilter();
         // Manually inject dependencies since this is a @Bean method
         filter.setUserDetailsService(userDetailsService);
-        filter.setJwtUtil(new JwtUtil());
+        filter.setJwtUtil(jwtUtil);
+        filter.setPublicRouteRegistry(publicRouteRegistry);
+        filter.setUserActivityTracker(userActivityTracker);
         return filter;
     }
 
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", corsConfiguration());
+        return source;
+    }
+
+    // Preflights are answered here, ahead of the security chain, so they never reach JwtFilter
+    @Bean
+    public FilterRegistrationBean<CorsPreflightFilter> corsPreflightFilter() {
+        FilterRegistrationBean<CorsPreflightFilter> registration = new FilterRegistrationBean<>(new CorsPreflightFilter(corsConfiguration()));
+        registration.addUrlPatterns("/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    // Right after preflights and ahead of the security chain, so shed requests never reach JwtFilter or BCrypt
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter() {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(new ConcurrencyLimitFilter(concurrencyLimits));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
+    private CorsConfiguration corsConfiguration() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOriginPatterns(Arrays.asList(
                 "http://localhost:5173",
@@ -97,14 +166,15 @@ public class SecurityConfig {
         configuration.setExposedHeaders(List.of("Set-Cookie"));
         configuration.setMaxAge(3600L);
         configuration.setAllowCredentials(true);
-
-        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
-        source.registerCorsConfiguration("/**", configuration);
-        return source;
+        return configuration;
     }
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(passwordHashingCalibrator.bcryptStrength());
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        // Hashes stored before the {id} prefix was introduced are plain BCrypt
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 }
@@ -1,22 +1,36 @@
 package com.lls.rbac.controller;
 
+import com.lls.rbac.audit.AuditEvent;
+import com.lls.rbac.audit.AuditLog;
+import com.lls.rbac.datasource.ReadYourWritesTracker;
 import com.lls.rbac.dto.ApiResponse;
+import com.lls.rbac.dto.IntrospectRequestDTO;
 import com.lls.rbac.dto.LoginRequestDTO;
 import com.lls.rbac.dto.RegisterRequestDTO;
 import com.lls.rbac.entity.User;
 import com.lls.rbac.jwt.JwtUtil;
 import com.lls.rbac.repository.UserRepository;
+import com.lls.rbac.repository.projection.UserProfileView;
+import com.lls.rbac.security.AuthenticatedUser;
 import com.lls.rbac.security.CustomUserDetailsService;
+import com.lls.rbac.security.LoginAttemptService;
+import com.lls.rbac.service.TokenIntrospectionService;
+import com.lls.rbac.service.UserActivityTracker;
+import com.lls.rbac.service.UserAvailabilityService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.LockedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import jakarta.servlet.http.Cookie;
@@ -24,6 +38,8 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -34,30 +50,52 @@ public class AuthController {
 
     private final AuthenticationManager authenticationManager;
     private final UserRepository userRepository;
-    private final UserDetailsService userDetailsService;
+    private final CustomUserDetailsService userDetailsService;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
+    private final TokenIntrospectionService tokenIntrospectionService;
+    private final LoginAttemptService loginAttemptService;
+    private final UserActivityTracker userActivityTracker;
+    private final UserAvailabilityService userAvailabilityService;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final AuditLog auditLog;
 
     @Autowired
-    public AuthController(AuthenticationManager authenticationManager, UserRepository userRepository, UserDetailsService userDetailsService, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public AuthController(AuthenticationManager authenticationManager, UserRepository userRepository, CustomUserDetailsService userDetailsService, PasswordEncoder passwordEncoder, JwtUtil jwtUtil, TokenIntrospectionService tokenIntrospectionService, LoginAttemptService loginAttemptService, UserActivityTracker userActivityTracker, UserAvailabilityService userAvailabilityService, ReadYourWritesTracker readYourWritesTracker, AuditLog auditLog) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.userDetailsService = userDetailsService;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
+        this.tokenIntrospectionService = tokenIntrospectionService;
+        this.loginAttemptService = loginAttemptService;
+        this.userActivityTracker = userActivityTracker;
+        this.userAvailabilityService = userAvailabilityService;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.auditLog = auditLog;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequestDTO loginRequestDTO, HttpServletResponse response) {
+    public ResponseEntity<?> login(@RequestBody LoginRequestDTO loginRequestDTO, HttpServletRequest request, HttpServletResponse response) {
         try {
+            // Only password logins are refused while locked, sessions already signed in keep working; checked before
+            // the lookup so a locked account never reaches the database or password hashing
+            if (loginAttemptService.isLocked(loginRequestDTO.getUsername())) {
+                throw new LockedException("User account is locked");
+            }
             Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(loginRequestDTO.getUsername(), loginRequestDTO.getPassword())
             );
             logger.info("authentication: {}", authentication);
+            loginAttemptService.recordSuccess(loginRequestDTO.getUsername());
+            auditLog.record(AuditEvent.Type.LOGIN_SUCCESS, loginRequestDTO.getUsername(), request.getRemoteAddr(), null);
 
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
             String token = jwtUtil.generateToken(userDetails.getUsername());
             logger.info("userDetails: {}", userDetails);
+            if (userDetails instanceof AuthenticatedUser principal) {
+                userActivityTracker.recordLogin(principal.id());
+            }
 
             // Set JWT token as HTTP-only cookie
             Cookie jwtCookie = new Cookie("jwt-token", token);
@@ -74,21 +112,26 @@ public class AuthController {
             logger.info("response: {}", responseBody);
 
             return ResponseEntity.ok(responseBody);
+        } catch (LockedException | InternalAuthenticationServiceException e) {
+            // DaoAuthenticationProvider wraps exceptions thrown by the user lookup
+            if (e instanceof LockedException || e.getCause() instanceof LockedException) {
+                auditLog.record(AuditEvent.Type.LOGIN_LOCKED, loginRequestDTO.getUsername(), request.getRemoteAddr(), null);
+                return ResponseEntity.badRequest().body("Account is temporarily locked");
+            }
+            auditLog.record(AuditEvent.Type.LOGIN_FAILURE, loginRequestDTO.getUsername(), request.getRemoteAddr(), e.getClass().getSimpleName());
+            return ResponseEntity.badRequest().body("Invalid username or password");
+        } catch (BadCredentialsException e) {
+            loginAttemptService.recordFailure(loginRequestDTO.getUsername());
+            auditLog.record(AuditEvent.Type.LOGIN_FAILURE, loginRequestDTO.getUsername(), request.getRemoteAddr(), "bad credentials");
+            return ResponseEntity.badRequest().body("Invalid username or password");
         } catch (Exception e) {
+            auditLog.record(AuditEvent.Type.LOGIN_FAILURE, loginRequestDTO.getUsername(), request.getRemoteAddr(), e.getClass().getSimpleName());
             return ResponseEntity.badRequest().body("Invalid username or password");
         }
     }
 
     @PostMapping("/register")
     public ResponseEntity<?> register(@RequestBody RegisterRequestDTO registerRequestDTO) {
-        if (userRepository.existsByUsername(registerRequestDTO.getUsername())) {
-            return ResponseEntity.badRequest().body("Username already exists");
-        }
-
-        if (userRepository.existsByEmail(registerRequestDTO.getEmail())) {
-            return ResponseEntity.badRequest().body("Email already exists");
-        }
-
         User user = new User();
         user.setUsername(registerRequestDTO.getUsername());
         user.setEmail(registerRequestDTO.getEmail());
@@ -97,11 +140,58 @@ public class AuthController {
         user.setMiddleName(registerRequestDTO.getMiddleName());
         user.setLastName(registerRequestDTO.getLastName());
 
-        userRepository.save(user);
+        // A single insert; the unique constraints decide duplicates, which also closes the race between concurrent signups
+        try {
+            userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            if (isUniqueViolation(e, User.USERNAME_CONSTRAINT)) {
+                return ResponseEntity.badRequest().body("Username already exists");
+            }
+            if (isUniqueViolation(e, User.EMAIL_CONSTRAINT)) {
+                return ResponseEntity.badRequest().body("Email already exists");
+            }
+            // Drivers that leave the constraint name out, and other violations such as a missing or too long value
+            if (userRepository.existsByUsername(registerRequestDTO.getUsername())) {
+                return ResponseEntity.badRequest().body("Username already exists");
+            }
+            if (userRepository.existsByEmail(registerRequestDTO.getEmail())) {
+                return ResponseEntity.badRequest().body("Email already exists");
+            }
+            logger.warn("Registration rejected by the database: {}", e.getMostSpecificCause().getMessage());
+            return ResponseEntity.badRequest().body("Registration failed");
+        }
+        userAvailabilityService.recordRegistration(user.getUsername(), user.getEmail());
+        // The first login usually follows right away and must not miss the new row on a lagging replica
+        readYourWritesTracker.recordWrite(user.getUsername());
 
         return ResponseEntity.ok("User registered successfully");
     }
 
+    @GetMapping("/availability")
+    public ResponseEntity<?> availability(@RequestParam(required = false) String username, @RequestParam(required = false) String email) {
+        if ((username == null || username.isBlank()) && (email == null || email.isBlank())) {
+            return ApiResponse.body()
+                    .success(false)
+                    .responseCode("INVALID_REQUEST")
+                    .message("A username or email is required")
+                    .status(HttpStatus.BAD_REQUEST)
+                    .build();
+        }
+
+        Map<String, Object> availability = new HashMap<>();
+        if (username != null && !username.isBlank()) {
+            availability.put("username", userAvailabilityService.isUsernameAvailable(username));
+        }
+        if (email != null && !email.isBlank()) {
+            availability.put("email", userAvailabilityService.isEmailAvailable(email));
+        }
+        return ApiResponse.body()
+                .success(true)
+                .data(availability)
+                .status(HttpStatus.OK)
+                .build();
+    }
+
     @GetMapping(path = "/validate-token")
     public ResponseEntity<?> checkSession(HttpServletRequest request) {
         try {
@@ -160,7 +250,7 @@ public class AuthController {
                 String username = jwtUtil.validateToken(token);
                 
                 if (username != null) {
-                    User user = userRepository.findByUsername(username).orElse(null);
+                    UserProfileView user = userRepository.findProfileByUsername(username).orElse(null);
                     if (user != null) {
                         Map<String, Object> profile = new HashMap<>();
                         profile.put("username", user.getUsername());
@@ -169,8 +259,7 @@ public class AuthController {
                         profile.put("middleName", user.getMiddleName());
                         profile.put("lastName", user.getLastName());
 
-                        UserDetails userAuthority = userDetailsService.loadUserByUsername(username);
-                        profile.put("authorities", userAuthority.getAuthorities());
+                        profile.put("authorities", userDetailsService.loadPrincipal(username).getAuthorities());
                         return ApiResponse.body()
                                 .success(true)
                                 .data(profile)
@@ -193,8 +282,40 @@ public class AuthController {
         }
     }
 
+    // Reveals whether any token is live and what it grants, so only trusted callers may ask
+    @PostMapping("/introspect")
+    @PreAuthorize("hasAuthority('ADMIN_READ')")
+    public ResponseEntity<?> introspect(@RequestBody IntrospectRequestDTO introspectRequestDTO) {
+        List<String> tokens = introspectRequestDTO.getTokens();
+        if (tokens == null || tokens.isEmpty() || tokens.size() > TokenIntrospectionService.MAX_BATCH_SIZE) {
+            return ApiResponse.body()
+                    .success(false)
+                    .responseCode("INVALID_REQUEST")
+                    .message("Between 1 and " + TokenIntrospectionService.MAX_BATCH_SIZE + " tokens are required")
+                    .status(HttpStatus.BAD_REQUEST)
+                    .build();
+        }
+
+        return ApiResponse.body()
+                .success(true)
+                .data(tokenIntrospectionService.introspect(tokens))
+                .status(HttpStatus.OK)
+                .build();
+    }
+
     @PostMapping("/logout")
-    public ResponseEntity<?> logout(HttpServletResponse response) {
+    public ResponseEntity<?> logout(HttpServletRequest request, HttpServletResponse response) {
+        String username = null;
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if ("jwt-token".equals(cookie.getName())) {
+                    username = jwtUtil.validateToken(cookie.getValue());
+                    break;
+                }
+            }
+        }
+        auditLog.record(AuditEvent.Type.LOGOUT, username, request.getRemoteAddr(), null);
+
         // Clear the JWT cookie by setting it to expire immediately
         Cookie jwtCookie = new Cookie("jwt-token", "");
         jwtCookie.setHttpOnly(true);
@@ -209,4 +330,12 @@ public class AuthController {
                 .build();
     }
 
+    private static boolean isUniqueViolation(DataIntegrityViolationException e, String constraintName) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().toLowerCase(Locale.ROOT).contains(constraintName)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
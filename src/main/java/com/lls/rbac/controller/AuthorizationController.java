@@ -0,0 +1,89 @@
+package com.lls.rbac.controller;
+
+import com.lls.rbac.audit.AuditEvent;
+import com.lls.rbac.audit.AuditLog;
+import com.lls.rbac.dto.ApiResponse;
+import com.lls.rbac.dto.AuthorizationCheckRequestDTO;
+import com.lls.rbac.security.AuthorizationIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/authz")
+public class AuthorizationController {
+
+    private static final int MAX_CHECKS = 500;
+
+    // Required to ask about anyone other than yourself
+    private static final String INSPECT_OTHERS_AUTHORITY = "ADMIN_READ";
+
+    private final AuthorizationIndex authorizationIndex;
+    private final AuditLog auditLog;
+
+    @Autowired
+    public AuthorizationController(AuthorizationIndex authorizationIndex, AuditLog auditLog) {
+        this.authorizationIndex = authorizationIndex;
+        this.auditLog = auditLog;
+    }
+
+    @PostMapping("/check")
+    public ResponseEntity<?> check(@RequestBody AuthorizationCheckRequestDTO requestDTO, HttpServletRequest request) {
+        List<AuthorizationCheckRequestDTO.Check> checks = requestDTO.getChecks();
+        if (checks == null || checks.isEmpty() || checks.size() > MAX_CHECKS
+                || checks.stream().anyMatch(check -> check == null || check.getAuthority() == null || check.getAuthority().isBlank())) {
+            return ApiResponse.body()
+                    .success(false)
+                    .responseCode("INVALID_REQUEST")
+                    .message("Between 1 and " + MAX_CHECKS + " checks with an authority are required")
+                    .status(HttpStatus.BAD_REQUEST)
+                    .build();
+        }
+
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String currentUser = auth.getName();
+        Set<String> usernames = checks.stream()
+                .map(check -> check.getUsername() == null || check.getUsername().isBlank() ? currentUser : check.getUsername())
+                .collect(Collectors.toSet());
+
+        boolean inspectsOthers = usernames.stream().anyMatch(username -> !username.equals(currentUser));
+        if (inspectsOthers && auth.getAuthorities().stream().map(GrantedAuthority::getAuthority).noneMatch(INSPECT_OTHERS_AUTHORITY::equals)) {
+            auditLog.record(AuditEvent.Type.ACCESS_DENIED, currentUser, request.getRemoteAddr(), "authz check of other users");
+            return ApiResponse.body()
+                    .success(false)
+                    .responseCode("FORBIDDEN")
+                    .message("Checking other users requires " + INSPECT_OTHERS_AUTHORITY)
+                    .status(HttpStatus.FORBIDDEN)
+                    .build();
+        }
+
+        Map<String, Set<String>> authorities = authorizationIndex.authoritiesOf(usernames);
+        List<Map<String, Object>> results = new ArrayList<>(checks.size());
+        for (AuthorizationCheckRequestDTO.Check check : checks) {
+            String username = check.getUsername() == null || check.getUsername().isBlank() ? currentUser : check.getUsername();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("username", username);
+            result.put("authority", check.getAuthority());
+            result.put("granted", authorities.getOrDefault(username, Set.of()).contains(check.getAuthority()));
+            results.add(result);
+        }
+
+        return ApiResponse.body()
+                .success(true)
+                .data(results)
+                .status(HttpStatus.OK)
+                .build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.lls.rbac.controller;
+
+import com.lls.rbac.dto.ApiResponse;
+import com.lls.rbac.limit.ConcurrencyLimits;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin")
+public class ConcurrencyController {
+
+    private final ConcurrencyLimits concurrencyLimits;
+
+    @Autowired
+    public ConcurrencyController(ConcurrencyLimits concurrencyLimits) {
+        this.concurrencyLimits = concurrencyLimits;
+    }
+
+    @GetMapping("/concurrency")
+    public ResponseEntity<?> concurrency() {
+        return ApiResponse.body()
+                .success(true)
+                .data(concurrencyLimits.stats())
+                .status(HttpStatus.OK)
+                .build();
+    }
+}
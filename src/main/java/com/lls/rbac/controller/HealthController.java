@@ -1,7 +1,9 @@
 package com.lls.rbac.controller;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.lls.rbac.health.HealthMonitor;
+import com.lls.rbac.health.HealthSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -10,22 +12,47 @@ import org.springframework.web.bind.annotation.RestController;
 import java.util.HashMap;
 import java.util.Map;
 
+// Every endpoint reads the snapshot kept by HealthMonitor; none of them touches the database
 @RestController
 @RequestMapping("/api/health")
 public class HealthController {
-    
-    private static final Logger log = LoggerFactory.getLogger(HealthController.class);
-    
+
+    private final HealthMonitor healthMonitor;
+
+    @Autowired
+    public HealthController(HealthMonitor healthMonitor) {
+        this.healthMonitor = healthMonitor;
+    }
+
     @GetMapping
     public ResponseEntity<Map<String, Object>> health() {
+        HealthSnapshot snapshot = healthMonitor.snapshot();
+        boolean ready = healthMonitor.isReady();
         Map<String, Object> response = new HashMap<>();
-        response.put("status", "UP");
-        response.put("message", "RBAC application is running");
+        response.put("status", ready ? snapshot.status() : HealthSnapshot.Status.DOWN);
+        response.put("checkedAt", snapshot.checkedAt());
+        response.put("ageMs", healthMonitor.ageMillis());
+        response.put("checkDurationMs", snapshot.durationMs());
+        response.put("components", snapshot.components());
+        response.put("warmingUp", healthMonitor.isWarmingUp());
         response.put("timestamp", System.currentTimeMillis());
-        log.info("Health check requested");
-        return ResponseEntity.ok(response);
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(response);
     }
-}
 
+    @GetMapping("/liveness")
+    public ResponseEntity<Map<String, Object>> liveness() {
+        return probe(healthMonitor.isLive());
+    }
 
+    @GetMapping("/readiness")
+    public ResponseEntity<Map<String, Object>> readiness() {
+        return probe(healthMonitor.isReady());
+    }
 
+    private ResponseEntity<Map<String, Object>> probe(boolean up) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", up ? HealthSnapshot.Status.UP : HealthSnapshot.Status.DOWN);
+        response.put("ageMs", healthMonitor.ageMillis());
+        return ResponseEntity.status(up ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+}
@@ -0,0 +1,41 @@
+package com.lls.rbac.controller;
+
+import com.lls.rbac.jwt.JwtUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Publishes the token verification keys so other services can check our tokens without calling us.
+// Consumers cache the set for max-age and refetch early when they meet a token with an unknown kid.
+@RestController
+public class JwksController {
+
+    private final Map<String, Object> jwks;
+    private final String eTag;
+    private final CacheControl cacheControl;
+
+    @Autowired
+    public JwksController(JwtUtil jwtUtil, @Value("${rbac.jwt.jwks-max-age-seconds:3600}") long maxAgeSeconds) {
+        List<Map<String, Object>> keys = jwtUtil.publicJwks();
+        this.jwks = Map.of("keys", keys);
+        this.eTag = "\"" + keys.stream().map(key -> String.valueOf(key.get("kid"))).collect(Collectors.joining(".")) + "\"";
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic();
+    }
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<?> jwks() {
+        // The ETag lets Spring answer If-None-Match revalidations with 304
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag(eTag)
+                .body(jwks);
+    }
+}
@@ -0,0 +1,135 @@
+package com.lls.rbac.controller;
+
+import com.lls.rbac.dto.ApiResponse;
+import com.lls.rbac.dto.BulkAssignmentRequestDTO;
+import com.lls.rbac.service.RoleAssignmentService;
+import com.lls.rbac.service.RoleMembershipService;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+@RestController
+@RequestMapping("/api/admin")
+@PreAuthorize("hasRole('ADMIN')")
+public class RoleAdminController {
+
+    private final RoleAssignmentService roleAssignmentService;
+    private final RoleMembershipService roleMembershipService;
+
+    @Autowired
+    public RoleAdminController(RoleAssignmentService roleAssignmentService, RoleMembershipService roleMembershipService) {
+        this.roleAssignmentService = roleAssignmentService;
+        this.roleMembershipService = roleMembershipService;
+    }
+
+    @GetMapping("/roles/{roleName}/members")
+    public ResponseEntity<?> members(@PathVariable String roleName,
+                                     @RequestParam(defaultValue = "0") long after,
+                                     @RequestParam(defaultValue = "50") int size,
+                                     @RequestParam(defaultValue = "estimate") String count) {
+        return page(count, mode -> roleMembershipService.members(roleName, after, size, mode));
+    }
+
+    @GetMapping("/permissions/{permissionName}/roles")
+    public ResponseEntity<?> rolesWithPermission(@PathVariable String permissionName,
+                                                 @RequestParam(defaultValue = "0") long after,
+                                                 @RequestParam(defaultValue = "50") int size,
+                                                 @RequestParam(defaultValue = "exact") String count) {
+        return page(count, mode -> roleMembershipService.rolesWithPermission(permissionName, after, size, mode));
+    }
+
+    @PostMapping("/roles/{roleName}/members")
+    public ResponseEntity<?> addMembers(@PathVariable String roleName, @RequestBody BulkAssignmentRequestDTO requestDTO) {
+        return apply("role", roleName, requestDTO, roleAssignmentService::assignRole);
+    }
+
+    @DeleteMapping("/roles/{roleName}/members")
+    public ResponseEntity<?> removeMembers(@PathVariable String roleName, @RequestBody BulkAssignmentRequestDTO requestDTO) {
+        return apply("role", roleName, requestDTO, roleAssignmentService::revokeRole);
+    }
+
+    @PostMapping("/permissions/{permissionName}/roles")
+    public ResponseEntity<?> grantPermission(@PathVariable String permissionName, @RequestBody BulkAssignmentRequestDTO requestDTO) {
+        return apply("permission", permissionName, requestDTO, roleAssignmentService::grantPermission);
+    }
+
+    @DeleteMapping("/permissions/{permissionName}/roles")
+    public ResponseEntity<?> revokePermission(@PathVariable String permissionName, @RequestBody BulkAssignmentRequestDTO requestDTO) {
+        return apply("permission", permissionName, requestDTO, roleAssignmentService::revokePermission);
+    }
+
+    private ResponseEntity<?> page(String count, Function<RoleMembershipService.CountMode, Object> query) {
+        RoleMembershipService.CountMode mode;
+        try {
+            mode = RoleMembershipService.CountMode.valueOf(count.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.body()
+                    .success(false)
+                    .responseCode("INVALID_REQUEST")
+                    .message("count must be one of exact, estimate or none")
+                    .status(HttpStatus.BAD_REQUEST)
+                    .build();
+        }
+
+        try {
+            return ApiResponse.body()
+                    .success(true)
+                    .data(query.apply(mode))
+                    .status(HttpStatus.OK)
+                    .build();
+        } catch (EntityNotFoundException e) {
+            return notFound(e);
+        }
+    }
+
+    private ResponseEntity<?> apply(String kind, String target, BulkAssignmentRequestDTO requestDTO,
+                                    BiFunction<String, Collection<String>, Integer> assignment) {
+        List<String> names = requestDTO.getNames();
+        if (names == null || names.isEmpty() || names.size() > RoleAssignmentService.MAX_NAMES
+                || names.stream().anyMatch(name -> name == null || name.isBlank())) {
+            return ApiResponse.body()
+                    .success(false)
+                    .responseCode("INVALID_REQUEST")
+                    .message("Between 1 and " + RoleAssignmentService.MAX_NAMES + " non-blank names are required")
+                    .status(HttpStatus.BAD_REQUEST)
+                    .build();
+        }
+
+        int changed;
+        try {
+            changed = assignment.apply(target, names);
+        } catch (EntityNotFoundException e) {
+            return notFound(e);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put(kind, target);
+        result.put("requested", names.size());
+        result.put("changed", changed);
+        return ApiResponse.body()
+                .success(true)
+                .data(result)
+                .status(HttpStatus.OK)
+                .build();
+    }
+
+    private static ResponseEntity<?> notFound(EntityNotFoundException e) {
+        return ApiResponse.body()
+                .success(false)
+                .responseCode("NOT_FOUND")
+                .message(e.getMessage())
+                .status(HttpStatus.NOT_FOUND)
+                .build();
+    }
+}
@@ -35,7 +35,7 @@ public class TestController {
     }
 
     @GetMapping("/moderator/test")
-    @PreAuthorize("hasAnyRole('MODERATOR', 'ADMIN')")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MODERATOR')")
     public ResponseEntity<?> moderatorEndpoint() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         Map<String, Object> response = new HashMap<>();
@@ -0,0 +1,117 @@
+package com.lls.rbac.datasource;
+
+import com.lls.rbac.security.AuthorizationChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Remembers recent writes so reads that must observe them go to the primary instead of a replica that may
+// not have caught up yet. Writes are keyed by the user they concern; role and permission changes affect
+// everyone and pin all reads for the window.
+@Component
+public class ReadYourWritesTracker {
+
+    private final long windowMillis;
+
+    private final Map<String, Long> writes = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> subject = new ThreadLocal<>();
+    private final ThreadLocal<Boolean> primaryForced = new ThreadLocal<>();
+    private volatile long globalWriteAt;
+    private volatile boolean replicasInUse;
+
+    public ReadYourWritesTracker(@Value("${rbac.datasource.read-your-writes-window-ms:5000}") long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public void recordWrite(String username) {
+        if (username != null) {
+            writes.put(username, System.currentTimeMillis());
+        }
+    }
+
+    public void recordGlobalWrite() {
+        globalWriteAt = System.currentTimeMillis();
+    }
+
+    // Fires on whichever node polled the change, so every node pins reads while replicas replay it
+    @EventListener(AuthorizationChangedEvent.class)
+    public void onAuthorizationChanged() {
+        recordGlobalWrite();
+    }
+
+    // Runs the reads in the callback on behalf of a user who is not (yet) the authenticated principal, e.g. during login
+    public <T> T withSubject(String username, Supplier<T> reads) {
+        String previous = subject.get();
+        subject.set(username);
+        try {
+            return reads.get();
+        } finally {
+            if (previous == null) {
+                subject.remove();
+            } else {
+                subject.set(previous);
+            }
+        }
+    }
+
+    // Runs the reads in the callback on the primary whatever the recent writes, e.g. to double-check a miss
+    // on a replica for a write made on another node, which this tracker never saw
+    public <T> T onPrimary(Supplier<T> reads) {
+        if (Boolean.TRUE.equals(primaryForced.get())) {
+            return reads.get();
+        }
+        primaryForced.set(true);
+        try {
+            return reads.get();
+        } finally {
+            primaryForced.remove();
+        }
+    }
+
+    // Set by the replica router, so callers only pay for a second look at the primary when reads can lag
+    public void markReplicasInUse() {
+        replicasInUse = true;
+    }
+
+    public boolean replicasInUse() {
+        return replicasInUse;
+    }
+
+    public boolean mustReadPrimary() {
+        if (Boolean.TRUE.equals(primaryForced.get())) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - globalWriteAt < windowMillis) {
+            return true;
+        }
+        String username = currentSubject();
+        if (username == null) {
+            return false;
+        }
+        Long writtenAt = writes.get(username);
+        return writtenAt != null && now - writtenAt < windowMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${rbac.datasource.read-your-writes-window-ms:5000}")
+    public void evictExpired() {
+        long oldest = System.currentTimeMillis() - windowMillis;
+        writes.values().removeIf(writtenAt -> writtenAt < oldest);
+    }
+
+    private String currentSubject() {
+        String username = subject.get();
+        if (username != null) {
+            return username;
+        }
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null ? auth.getName() : null;
+    }
+}
@@ -0,0 +1,44 @@
+package com.lls.rbac.datasource;
+
+import lombok.*;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@ConfigurationProperties(prefix = "rbac.datasource")
+public class ReplicaProperties {
+
+    public enum Policy { ROUND_ROBIN, LEAST_CONNECTIONS }
+
+    // Read-only replicas of spring.datasource; none means every query goes to the primary
+    private List<Replica> replicas = new ArrayList<>();
+
+    private Policy policy = Policy.ROUND_ROBIN;
+
+    private long healthCheckIntervalMs = 5000;
+
+    private int healthCheckTimeoutSeconds = 2;
+
+    // How long a read waits for a replica connection before trying the next replica or the primary; Hikari's
+    // 30 s default would stall every read behind a replica that stopped answering
+    private long connectionTimeoutMs = 2000;
+
+    // How long reads go to the primary after a write they could otherwise miss on a lagging replica
+    private long readYourWritesWindowMs = 5000;
+
+    @Data
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
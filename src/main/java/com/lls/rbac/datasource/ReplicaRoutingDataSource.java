@@ -0,0 +1,175 @@
+package com.lls.rbac.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hands out connections for read-only work. Picks a healthy replica by the configured policy, skips replicas
+// that fail health checks or refuse a connection, and falls back to the primary when none is usable or the
+// caller has to see its own recent writes.
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<Node> replicas;
+    private final ReplicaProperties.Policy policy;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final int healthCheckTimeoutSeconds;
+
+    private final AtomicLong cursor = new AtomicLong();
+
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    List<DataSource> replicas,
+                                    ReplicaProperties.Policy policy,
+                                    ReadYourWritesTracker readYourWritesTracker,
+                                    int healthCheckTimeoutSeconds) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Node("replica-" + i, replicas.get(i)));
+        }
+        this.policy = policy;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.healthCheckTimeoutSeconds = healthCheckTimeoutSeconds;
+        readYourWritesTracker.markReplicasInUse();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!readYourWritesTracker.mustReadPrimary()) {
+            for (Node node : candidates()) {
+                try {
+                    return node.connect();
+                } catch (SQLException e) {
+                    node.eject(e);
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica connections use the configured credentials");
+    }
+
+    // Validates every replica, ejecting the failing ones and putting recovered ones back into rotation
+    @Scheduled(fixedDelayString = "${rbac.datasource.health-check-interval-ms:5000}")
+    public void checkHealth() {
+        for (Node node : replicas) {
+            try (Connection connection = node.dataSource.getConnection()) {
+                if (!connection.isValid(healthCheckTimeoutSeconds)) {
+                    throw new SQLException("Connection is not valid");
+                }
+                if (!node.healthy) {
+                    node.healthy = true;
+                    log.info("Replica {} is healthy again", node.name);
+                }
+            } catch (SQLException e) {
+                node.eject(e);
+            }
+        }
+    }
+
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(node -> node.healthy).count();
+    }
+
+    public int replicaCount() {
+        return replicas.size();
+    }
+
+    // Closes the replica pools; the primary belongs to the caller
+    @Override
+    public void close() {
+        for (Node node : replicas) {
+            if (node.dataSource instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close replica {}: {}", node.name, e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Healthy replicas in the order they should be tried
+    private List<Node> candidates() {
+        List<Node> healthy = new ArrayList<>(replicas.size());
+        for (Node node : replicas) {
+            if (node.healthy) {
+                healthy.add(node);
+            }
+        }
+        if (healthy.size() <= 1) {
+            return healthy;
+        }
+
+        if (policy == ReplicaProperties.Policy.LEAST_CONNECTIONS) {
+            healthy.sort((a, b) -> Integer.compare(a.active.get(), b.active.get()));
+            return healthy;
+        }
+        int start = (int) (cursor.getAndIncrement() % healthy.size());
+        List<Node> rotated = new ArrayList<>(healthy.size());
+        for (int i = 0; i < healthy.size(); i++) {
+            rotated.add(healthy.get((start + i) % healthy.size()));
+        }
+        return rotated;
+    }
+
+    private static final class Node {
+        private final String name;
+        private final DataSource dataSource;
+        private final AtomicInteger active = new AtomicInteger();
+        private volatile boolean healthy = true;
+
+        private Node(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private void eject(SQLException e) {
+            if (healthy) {
+                healthy = false;
+                log.warn("Ejecting replica {} until it passes a health check: {}", name, e.getMessage());
+            }
+        }
+
+        // Counts the connection as active until it is closed, for the least-connections policy
+        private Connection connect() throws SQLException {
+            Connection target = dataSource.getConnection();
+            active.incrementAndGet();
+            AtomicInteger released = new AtomicInteger();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if ("close".equals(method.getName()) && released.getAndIncrement() == 0) {
+                            active.decrementAndGet();
+                        } else if ("unwrap".equals(method.getName()) || "isWrapperFor".equals(method.getName())) {
+                            if (((Class<?>) args[0]).isInstance(target)) {
+                                return "unwrap".equals(method.getName()) ? target : true;
+                            }
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.lls.rbac.directory;
+
+import com.lls.rbac.entity.Role;
+import com.lls.rbac.entity.User;
+
+import java.time.LocalDateTime;
+
+// What authentication needs to know about a user; authorities are resolved from the role ids
+public record DirectoryEntry(long id,
+                             String username,
+                             String password,
+                             boolean enabled,
+                             boolean accountNonExpired,
+                             boolean accountNonLocked,
+                             LocalDateTime lockExpiresAt,
+                             boolean credentialsNonExpired,
+                             long[] roleIds) {
+
+    // A detached user carrying only these fields and id-only roles
+    public User toUser() {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setPassword(password);
+        user.setEnabled(enabled);
+        user.setAccountNonExpired(accountNonExpired);
+        user.setAccountNonLocked(accountNonLocked);
+        user.setLockExpiresAt(lockExpiresAt);
+        user.setCredentialsNonExpired(credentialsNonExpired);
+        for (long roleId : roleIds) {
+            Role role = new Role();
+            role.setId(roleId);
+            user.getRoles().add(role);
+        }
+        return user;
+    }
+}
@@ -0,0 +1,230 @@
+package com.lls.rbac.directory;
+
+import com.lls.rbac.repository.UserRepository;
+import com.lls.rbac.repository.projection.DirectoryUserView;
+import com.lls.rbac.repository.projection.UserRoleIdView;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Optional copy of what authentication reads about every user, kept off-heap in a memory-mapped store so
+// millions of users add nothing for the collector to trace. Loaded in full at startup and every full-refresh
+// interval; in between, each poll applies the rows whose updated_at moved, and drops deleted users once the
+// table holds fewer users than the directory up to the highest id it has stored.
+// Lookups never touch the database, so sign-in and token checks keep working through a short outage, and a
+// change made anywhere reaches them within about one poll interval. Users it does not know yet, such as
+// fresh registrations, are looked up in the database as before.
+@Component
+public class UserDirectory {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDirectory.class);
+
+    private static final int PAGE_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final Path directory;
+    private final int minCapacity;
+    private final int bytesPerUser;
+    private final Duration overlap;
+    private final long fullRefreshIntervalMs;
+
+    private volatile UserDirectoryStore store;
+
+    // Only touched by the refresh
+    private LocalDateTime watermark;
+    private long loadedAt;
+    private boolean rebuildNeeded;
+
+    @Autowired
+    public UserDirectory(UserRepository userRepository,
+                         @Value("${rbac.directory.enabled:false}") boolean enabled,
+                         @Value("${rbac.directory.path:user-directory}") String directory,
+                         @Value("${rbac.directory.min-capacity:100000}") int minCapacity,
+                         @Value("${rbac.directory.bytes-per-user:256}") int bytesPerUser,
+                         @Value("${rbac.directory.overlap-ms:5000}") long overlapMs,
+                         @Value("${rbac.directory.full-refresh-interval-ms:3600000}") long fullRefreshIntervalMs) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.minCapacity = minCapacity;
+        this.bytesPerUser = bytesPerUser;
+        this.overlap = Duration.ofMillis(overlapMs);
+        this.fullRefreshIntervalMs = fullRefreshIntervalMs;
+    }
+
+    // Null when the user is unknown here or the directory is disabled or not loaded yet
+    public DirectoryEntry find(String username) {
+        UserDirectoryStore current = store;
+        return current == null ? null : current.find(username);
+    }
+
+    @Scheduled(fixedDelayString = "${rbac.directory.poll-interval-ms:1000}")
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (store == null || rebuildNeeded || System.currentTimeMillis() - loadedAt >= fullRefreshIntervalMs) {
+                rebuild();
+            } else {
+                applyChanges();
+            }
+        } catch (Exception e) {
+            // Keeps serving the current snapshot; the next poll tries again
+            log.warn("User directory refresh failed: {}", e.getMessage());
+        }
+    }
+
+    // Loads everyone into a new store sized for the current user count, then swaps it in
+    private void rebuild() throws IOException {
+        long started = System.currentTimeMillis();
+        // Rows changed while the load runs are picked up again by the next poll
+        LocalDateTime since = LocalDateTime.now();
+        int capacity = (int) Math.min(UserDirectoryStore.MAX_USERS, Math.max(minCapacity, userRepository.count() * 2));
+        UserDirectoryStore next = new UserDirectoryStore(directory, capacity, (int) Math.min(Integer.MAX_VALUE, (long) capacity * bytesPerUser));
+        try {
+            long afterId = 0;
+            List<DirectoryUserView> page;
+            do {
+                page = userRepository.findDirectoryPage(afterId, Limit.of(PAGE_SIZE));
+                if (!store(next, page)) {
+                    throw new IllegalStateException("User directory is full at " + next.size() + " users");
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == PAGE_SIZE);
+        } catch (RuntimeException e) {
+            next.close();
+            throw e;
+        }
+
+        UserDirectoryStore previous = store;
+        store = next;
+        watermark = since;
+        loadedAt = System.currentTimeMillis();
+        rebuildNeeded = false;
+        if (previous != null) {
+            close(previous);
+        }
+        log.info("User directory loaded {} users in {} ms", next.size(), loadedAt - started);
+    }
+
+    // Re-reads the overlap window on every poll, for transactions that committed late and replica lag;
+    // rows the store already holds at the same updated_at are skipped
+    private void applyChanges() {
+        UserDirectoryStore current = store;
+        LocalDateTime since = watermark.minus(overlap);
+        long afterId = 0;
+        List<DirectoryUserView> page;
+        do {
+            page = userRepository.findDirectoryChanges(since, afterId, Limit.of(PAGE_SIZE));
+            List<DirectoryUserView> changed = page.stream()
+                    .filter(user -> current.updatedAt(user.getUsername()) != stamp(user.getUpdatedAt()))
+                    .toList();
+            if (!store(current, changed)) {
+                // Out of room, mostly from superseded records; the next poll rebuilds
+                rebuildNeeded = true;
+                return;
+            }
+            if (!page.isEmpty()) {
+                DirectoryUserView last = page.get(page.size() - 1);
+                since = last.getUpdatedAt();
+                afterId = last.getId();
+                if (since.isAfter(watermark)) {
+                    watermark = since;
+                }
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        // A delete leaves no row to poll for. Counting only ids the directory has reached keeps registrations
+        // it has not stored yet from cancelling a delete out; the table can then only hold fewer of those users
+        // when someone was deleted. Only a lower id committing late can hide that, until a poll picks the row up.
+        if (current.size() > userRepository.countByIdLessThanEqual(current.maxId())) {
+            removeDeleted(current);
+        }
+    }
+
+    // Checks every stored id against the table a page at a time and drops the users that are gone
+    private void removeDeleted(UserDirectoryStore current) {
+        Map<Long, String> page = new HashMap<>();
+        List<String> deleted = new ArrayList<>();
+        current.forEach((username, id) -> {
+            page.put(id, username);
+            if (page.size() == PAGE_SIZE) {
+                collectDeleted(page, deleted);
+            }
+        });
+        collectDeleted(page, deleted);
+        deleted.forEach(current::remove);
+        log.info("User directory dropped {} deleted users", deleted.size());
+    }
+
+    private void collectDeleted(Map<Long, String> page, List<String> deleted) {
+        if (page.isEmpty()) {
+            return;
+        }
+        userRepository.findExistingIds(page.keySet()).forEach(page::remove);
+        deleted.addAll(page.values());
+        page.clear();
+    }
+
+    // Writes one page of users with their role ids; false when the store is full
+    private boolean store(UserDirectoryStore target, List<DirectoryUserView> users) {
+        if (users.isEmpty()) {
+            return true;
+        }
+        Map<Long, List<Long>> roleIds = new HashMap<>();
+        for (UserRoleIdView row : userRepository.findRoleIdsByUserIdIn(users.stream().map(DirectoryUserView::getId).toList())) {
+            roleIds.computeIfAbsent(row.getUserId(), id -> new ArrayList<>()).add(row.getRoleId());
+        }
+        for (DirectoryUserView user : users) {
+            DirectoryEntry entry = new DirectoryEntry(user.getId(), user.getUsername(), user.getPassword(),
+                    Boolean.TRUE.equals(user.getEnabled()), Boolean.TRUE.equals(user.getAccountNonExpired()),
+                    Boolean.TRUE.equals(user.getAccountNonLocked()), user.getLockExpiresAt(),
+                    Boolean.TRUE.equals(user.getCredentialsNonExpired()),
+                    roleIds.getOrDefault(user.getId(), List.of()).stream().mapToLong(Long::longValue).toArray());
+            if (!target.put(entry, stamp(user.getUpdatedAt()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Microseconds, the precision updated_at is stored with
+    private static long stamp(LocalDateTime time) {
+        return time == null ? 0 : time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1000;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (store != null) {
+            close(store);
+            store = null;
+        }
+    }
+
+    private static void close(UserDirectoryStore store) {
+        try {
+            store.close();
+        } catch (IOException e) {
+            log.warn("Failed to remove user directory file: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.lls.rbac.directory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.function.ObjLongConsumer;
+import java.util.concurrent.locks.StampedLock;
+
+// Fixed-size user table in a memory-mapped file, outside the Java heap. An open-addressing hash table of
+// record offsets sits in front of an append-only record area. Changing a user appends a new record and
+// repoints its slot; the old record stays behind as garbage until the owner rebuilds into a fresh store.
+// Removing a user clears its slot and shifts the rest of its probe run back, so no tombstones are needed.
+//
+// One writer at a time. Readers start with an optimistic read and retry under the read lock if a write
+// overlapped, so lookups never block each other.
+//
+// Record layout: id (8), updated-at stamp (8), lock-expires-at stamp (8, Long.MIN_VALUE for none), flags (1),
+// username length (2) + UTF-8 bytes, password length (2, -1 for none) + UTF-8 bytes, role count (2) + role ids (8 each).
+final class UserDirectoryStore implements AutoCloseable {
+
+    private static final int ENABLED = 1;
+    private static final int ACCOUNT_NON_EXPIRED = 1 << 1;
+    private static final int ACCOUNT_NON_LOCKED = 1 << 2;
+    private static final int CREDENTIALS_NON_EXPIRED = 1 << 3;
+
+    private static final int FLAGS = Long.BYTES * 3;
+    private static final int USERNAME = FLAGS + 1;
+
+    // Keeps the slot table within one mapping
+    static final int MAX_USERS = 1 << 28;
+
+    private final Path file;
+    private final FileChannel channel;
+    // Slot i holds the record offset + 1, 0 when empty
+    private final MappedByteBuffer slots;
+    private final MappedByteBuffer records;
+    private final int mask;
+    private final int maxUsers;
+
+    private final StampedLock lock = new StampedLock();
+
+    // Guarded by the write lock
+    private int recordsEnd;
+    private int users;
+    private long maxId;
+
+    UserDirectoryStore(Path directory, int maxUsers, int recordBytes) throws IOException {
+        if (maxUsers < 1 || maxUsers > MAX_USERS || recordBytes < 1) {
+            throw new IllegalArgumentException("Invalid user directory size: " + maxUsers + " users, " + recordBytes + " bytes");
+        }
+        int slotCount = Integer.highestOneBit(Math.max(2, maxUsers * 2 - 1)) << 1;
+        this.mask = slotCount - 1;
+        this.maxUsers = maxUsers;
+        this.file = createFile(Files.createDirectories(directory));
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.slots = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) slotCount * Integer.BYTES);
+        this.records = channel.map(FileChannel.MapMode.READ_WRITE, (long) slotCount * Integer.BYTES, recordBytes);
+    }
+
+    // Holds password hashes, so only the owner may read it
+    private static Path createFile(Path directory) throws IOException {
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return Files.createTempFile(directory, "users-", ".bin",
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        return Files.createTempFile(directory, "users-", ".bin");
+    }
+
+    DirectoryEntry find(String username) {
+        byte[] key = username.getBytes(StandardCharsets.UTF_8);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                DirectoryEntry entry = read(username, key);
+                if (lock.validate(stamp)) {
+                    return entry;
+                }
+            } catch (RuntimeException e) {
+                // Read a record while it was being written; retried under the read lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return read(username, key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // The stamp of the stored record, or Long.MIN_VALUE when the user is not stored. Only for the writer thread.
+    long updatedAt(String username) {
+        int offset = slots.getInt(slotOf(username.getBytes(StandardCharsets.UTF_8)) * Integer.BYTES) - 1;
+        return offset < 0 ? Long.MIN_VALUE : records.getLong(offset + Long.BYTES);
+    }
+
+    // False when the store is full; the caller has to rebuild into a larger one
+    boolean put(DirectoryEntry entry, long updatedAt) {
+        byte[] key = entry.username().getBytes(StandardCharsets.UTF_8);
+        byte[] password = entry.password() == null ? null : entry.password().getBytes(StandardCharsets.UTF_8);
+        long[] roleIds = entry.roleIds();
+        if (key.length > Short.MAX_VALUE || (password != null && password.length > Short.MAX_VALUE) || roleIds.length > Short.MAX_VALUE) {
+            return false;
+        }
+        int size = USERNAME + Short.BYTES + key.length + Short.BYTES + (password == null ? 0 : password.length)
+                + Short.BYTES + Long.BYTES * roleIds.length;
+
+        long stamp = lock.writeLock();
+        try {
+            if (size > records.capacity() - recordsEnd) {
+                return false;
+            }
+            int slot = slotOf(key);
+            boolean added = slots.getInt(slot * Integer.BYTES) == 0;
+            if (added && users == maxUsers) {
+                return false;
+            }
+
+            int offset = recordsEnd;
+            records.putLong(offset, entry.id());
+            records.putLong(offset + Long.BYTES, updatedAt);
+            records.putLong(offset + Long.BYTES * 2, stamp(entry.lockExpiresAt()));
+            records.put(offset + FLAGS, (byte) flags(entry));
+            int position = offset + USERNAME;
+            records.putShort(position, (short) key.length);
+            position += Short.BYTES;
+            records.put(position, key);
+            position += key.length;
+            records.putShort(position, (short) (password == null ? -1 : password.length));
+            position += Short.BYTES;
+            if (password != null) {
+                records.put(position, password);
+                position += password.length;
+            }
+            records.putShort(position, (short) roleIds.length);
+            position += Short.BYTES;
+            for (long roleId : roleIds) {
+                records.putLong(position, roleId);
+                position += Long.BYTES;
+            }
+
+            recordsEnd = offset + size;
+            slots.putInt(slot * Integer.BYTES, offset + 1);
+            if (added) {
+                users++;
+            }
+            maxId = Math.max(maxId, entry.id());
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // False when the user is not stored. Only for the writer thread's own calls, like put.
+    boolean remove(String username) {
+        long stamp = lock.writeLock();
+        try {
+            int hole = slotOf(username.getBytes(StandardCharsets.UTF_8));
+            if (slots.getInt(hole * Integer.BYTES) == 0) {
+                return false;
+            }
+            slots.putInt(hole * Integer.BYTES, 0);
+            // Moves back every later slot of the run whose home is at or before the hole, so probes still reach it
+            for (int slot = (hole + 1) & mask; slots.getInt(slot * Integer.BYTES) != 0; slot = (slot + 1) & mask) {
+                int home = home(storedKey(slots.getInt(slot * Integer.BYTES) - 1));
+                if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                    slots.putInt(hole * Integer.BYTES, slots.getInt(slot * Integer.BYTES));
+                    slots.putInt(slot * Integer.BYTES, 0);
+                    hole = slot;
+                }
+            }
+            users--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Visits the username and id of every stored user. Only for the writer thread, which must not change
+    // the store while visiting.
+    void forEach(ObjLongConsumer<String> action) {
+        for (int slot = 0; slot <= mask; slot++) {
+            int offset = slots.getInt(slot * Integer.BYTES) - 1;
+            if (offset >= 0) {
+                action.accept(new String(storedKey(offset), StandardCharsets.UTF_8), records.getLong(offset));
+            }
+        }
+    }
+
+    // The highest id ever stored, removed users included. Only for the writer thread.
+    long maxId() {
+        return maxId;
+    }
+
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return users;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Fraction of the record area in use, garbage included
+    double fill() {
+        long stamp = lock.readLock();
+        try {
+            return (double) recordsEnd / records.capacity();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // The mapping itself is released once the buffers are garbage collected; unlinking the file is safe before that
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    private DirectoryEntry read(String username, byte[] key) {
+        int offset = slots.getInt(slotOf(key) * Integer.BYTES) - 1;
+        if (offset < 0) {
+            return null;
+        }
+        long id = records.getLong(offset);
+        LocalDateTime lockExpiresAt = time(records.getLong(offset + Long.BYTES * 2));
+        int flags = records.get(offset + FLAGS);
+        // The stored username is the key just matched
+        int position = offset + USERNAME + Short.BYTES + key.length;
+        int passwordLength = records.getShort(position);
+        position += Short.BYTES;
+        String password = null;
+        if (passwordLength >= 0) {
+            password = new String(bytes(position, passwordLength), StandardCharsets.UTF_8);
+            position += passwordLength;
+        }
+        long[] roleIds = new long[records.getShort(position)];
+        position += Short.BYTES;
+        for (int i = 0; i < roleIds.length; i++) {
+            roleIds[i] = records.getLong(position + i * Long.BYTES);
+        }
+        return new DirectoryEntry(id, username, password, (flags & ENABLED) != 0, (flags & ACCOUNT_NON_EXPIRED) != 0,
+                (flags & ACCOUNT_NON_LOCKED) != 0, lockExpiresAt, (flags & CREDENTIALS_NON_EXPIRED) != 0, roleIds);
+    }
+
+    // The slot holding this username, or the empty slot where it would go
+    private int slotOf(byte[] key) {
+        int slot = home(key);
+        for (int probe = 0; probe <= mask; probe++) {
+            int offset = slots.getInt(slot * Integer.BYTES) - 1;
+            if (offset < 0 || matches(offset, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // Unreachable while the table is at most half full
+        throw new IllegalStateException("User directory table is full");
+    }
+
+    private int home(byte[] key) {
+        int hash = Arrays.hashCode(key);
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private byte[] storedKey(int offset) {
+        return bytes(offset + USERNAME + Short.BYTES, records.getShort(offset + USERNAME));
+    }
+
+    private boolean matches(int offset, byte[] key) {
+        int position = offset + USERNAME;
+        if (records.getShort(position) != key.length) {
+            return false;
+        }
+        position += Short.BYTES;
+        for (int i = 0; i < key.length; i++) {
+            if (records.get(position + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] bytes(int position, int length) {
+        byte[] bytes = new byte[length];
+        records.get(position, bytes);
+        return bytes;
+    }
+
+    // Microseconds since the epoch in UTC
+    private static long stamp(LocalDateTime time) {
+        return time == null ? Long.MIN_VALUE : time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1000;
+    }
+
+    private static LocalDateTime time(long stamp) {
+        return stamp == Long.MIN_VALUE ? null
+                : LocalDateTime.ofEpochSecond(Math.floorDiv(stamp, 1_000_000), Math.floorMod(stamp, 1_000_000) * 1000, ZoneOffset.UTC);
+    }
+
+    private static int flags(DirectoryEntry entry) {
+        return (entry.enabled() ? ENABLED : 0)
+                | (entry.accountNonExpired() ? ACCOUNT_NON_EXPIRED : 0)
+                | (entry.accountNonLocked() ? ACCOUNT_NON_LOCKED : 0)
+                | (entry.credentialsNonExpired() ? CREDENTIALS_NON_EXPIRED : 0);
+    }
+}
@@ -0,0 +1,29 @@
+package com.lls.rbac.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuthorizationCheckRequestDTO {
+
+    private List<Check> checks;
+
+    @Data
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Check {
+
+        // Omitted for the current user
+        private String username;
+
+        // A permission name such as USER_READ, or a role as ROLE_ADMIN
+        private String authority;
+    }
+}
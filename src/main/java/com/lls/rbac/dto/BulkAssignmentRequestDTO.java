@@ -0,0 +1,20 @@
+package com.lls.rbac.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkAssignmentRequestDTO {
+
+    // Usernames when assigning a role, role names when granting a permission
+    @NotEmpty(message = "At least one name is required")
+    @Size(max = 10000, message = "At most 10000 names can be assigned per request")
+    private List<String> names;
+}
@@ -0,0 +1,16 @@
+package com.lls.rbac.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class IntrospectRequestDTO {
+
+    // Bounds are checked against TokenIntrospectionService.MAX_BATCH_SIZE in the controller
+    private List<String> tokens;
+}
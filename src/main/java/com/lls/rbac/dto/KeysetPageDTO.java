@@ -0,0 +1,24 @@
+package com.lls.rbac.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class KeysetPageDTO<T> {
+
+    private List<T> items;
+
+    // Pass as "after" to fetch the next page; null on the last page
+    private Long nextAfter;
+
+    // Null when no count was requested
+    private Long total;
+
+    // True when total is a lower bound because counting stopped at the cap
+    private boolean totalIsLowerBound;
+}
@@ -0,0 +1,34 @@
+package com.lls.rbac.entity;
+
+import jakarta.persistence.*;
+
+// Single-row counter moved forward in the same transaction as every role, permission or user-role change.
+// Nodes poll it to learn that their in-memory authorization data is stale.
+@Entity
+@Table(name = "authorization_version")
+public class AuthorizationVersion {
+
+    public static final long SINGLETON_ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private long version;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
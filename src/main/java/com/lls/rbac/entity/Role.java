@@ -8,9 +8,13 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@NamedEntityGraph(name = Role.PERMISSIONS_GRAPH, attributeNodes = @NamedAttributeNode("permissions"))
 @Table(name = "roles")
 public class Role {
     
+    // Admin listings and the hierarchy index load a role with its permissions
+    public static final String PERMISSIONS_GRAPH = "Role.permissions";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -22,17 +26,24 @@ public class Role {
     @Column(columnDefinition = "TEXT")
     private String description;
     
+    // The role directly above this one; it is granted everything this role grants
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "parent_id")
+    private Role parent;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
-    @ManyToMany(fetch = FetchType.EAGER, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
+    @ManyToMany(fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     @JoinTable(
         name = "role_permissions",
         joinColumns = @JoinColumn(name = "role_id"),
-        inverseJoinColumns = @JoinColumn(name = "permission_id")
+        inverseJoinColumns = @JoinColumn(name = "permission_id"),
+        // The primary key leads with role_id; this serves "roles holding a permission" in role id order
+        indexes = @Index(name = "idx_role_permissions_permission_role", columnList = "permission_id, role_id")
     )
     private Set<Permission> permissions = new HashSet<>();
     
@@ -50,14 +61,13 @@ public class Role {
         updatedAt = LocalDateTime.now();
     }
     
+    // Only the owning side is updated; touching Permission.roles would load every existing member
     public void addPermission(Permission permission) {
         this.permissions.add(permission);
-        permission.getRoles().add(this);
     }
     
     public void removePermission(Permission permission) {
         this.permissions.remove(permission);
-        permission.getRoles().remove(this);
     }
 
     public Long getId() {
@@ -84,6 +94,14 @@ public class Role {
         this.description = description;
     }
 
+    public Role getParent() {
+        return parent;
+    }
+
+    public void setParent(Role parent) {
+        this.parent = parent;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -12,24 +12,37 @@ import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
+// Roles are lazy; queries that need them name a fetch plan with @EntityGraph
 @Entity
-@Table(name = "users")
+@NamedEntityGraph(name = User.AUTHENTICATION_GRAPH, attributeNodes = @NamedAttributeNode("roles"))
+@Table(name = "users", uniqueConstraints = {
+    @UniqueConstraint(name = User.USERNAME_CONSTRAINT, columnNames = "username"),
+    @UniqueConstraint(name = User.EMAIL_CONSTRAINT, columnNames = "email")
+}, indexes = {
+    // Serves incremental polling of changed users
+    @Index(name = "idx_users_updated_at", columnList = "updated_at, id")
+})
 public class User implements UserDetails {
     
+    public static final String USERNAME_CONSTRAINT = "uk_users_username";
+    public static final String EMAIL_CONSTRAINT = "uk_users_email";
+    
+    // Direct roles only: authorities are resolved from role ids through the role hierarchy
+    public static final String AUTHENTICATION_GRAPH = "User.authentication";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
     @NotBlank(message = "Username is required")
     @Size(min = 3, max = 50, message = "Username must be between 3 and 50 characters")
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String username;
     
     @NotBlank(message = "Email is required")
     @Email(message = "Email should be valid")
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String email;
     
     @NotBlank(message = "Password is required")
@@ -55,23 +68,40 @@ public class User implements UserDetails {
     @Column(name = "is_account_non_locked")
     private boolean accountNonLocked = true;
     
+    // Set for temporary lockouts after repeated failed logins; null for locks that only an administrator lifts
+    @Column(name = "lock_expires_at")
+    private LocalDateTime lockExpiresAt;
+    
     @Column(name = "is_credentials_non_expired")
     private boolean credentialsNonExpired = true;
     
+    // Maintained by UserActivityTracker with plain UPDATEs, so they never go through @PreUpdate
+    @Column(name = "last_login_at")
+    private LocalDateTime lastLoginAt;
+    
+    @Column(name = "last_seen_at")
+    private LocalDateTime lastSeenAt;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
-    @ManyToMany(fetch = FetchType.EAGER, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
+    @ManyToMany(fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     @JoinTable(
         name = "user_roles",
         joinColumns = @JoinColumn(name = "user_id"),
-        inverseJoinColumns = @JoinColumn(name = "role_id")
+        inverseJoinColumns = @JoinColumn(name = "role_id"),
+        // The primary key leads with user_id; this serves "members of a role" in user id order
+        indexes = @Index(name = "idx_user_roles_role_user", columnList = "role_id, user_id")
     )
     private Set<Role> roles = new HashSet<>();
     
+    // Effective authorities including those inherited through the role hierarchy, set when the user is loaded
+    @Transient
+    private Set<GrantedAuthority> resolvedAuthorities;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -85,10 +115,20 @@ public class User implements UserDetails {
     
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return roles.stream()
-                .flatMap(role -> role.getPermissions().stream())
-                .map(permission -> new SimpleGrantedAuthority(permission.getName()))
-                .collect(Collectors.toSet());
+        if (resolvedAuthorities != null) {
+            return resolvedAuthorities;
+        }
+        // Not resolved against the role hierarchy: direct roles and their own permissions only
+        Set<GrantedAuthority> authorities = new HashSet<>();
+        for (Role role : roles) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + role.getName()));
+            role.getPermissions().forEach(permission -> authorities.add(new SimpleGrantedAuthority(permission.getName())));
+        }
+        return authorities;
+    }
+
+    public void setResolvedAuthorities(Set<GrantedAuthority> resolvedAuthorities) {
+        this.resolvedAuthorities = resolvedAuthorities;
     }
 
     @Override
@@ -108,7 +148,13 @@ public class User implements UserDetails {
 
     @Override
     public boolean isAccountNonLocked() {
-        return accountNonLocked;
+        return accountNonLocked || (lockExpiresAt != null && !lockExpiresAt.isAfter(LocalDateTime.now()));
+    }
+
+    // A failed-login lockout carries an expiry and only stops password logins; sessions already signed in keep
+    // working. A lock without one is set by an administrator and ends sessions too.
+    public boolean isSessionLocked() {
+        return !accountNonLocked && lockExpiresAt == null;
     }
 
     @Override
@@ -121,14 +167,13 @@ public class User implements UserDetails {
         return enabled;
     }
     
+    // Only the owning side is updated; touching Role.users would load every existing member
     public void addRole(Role role) {
         this.roles.add(role);
-        role.getUsers().add(this);
     }
     
     public void removeRole(Role role) {
         this.roles.remove(role);
-        role.getUsers().remove(this);
     }
 
     public Long getId() {
@@ -195,6 +240,30 @@ public class User implements UserDetails {
         this.credentialsNonExpired = credentialsNonExpired;
     }
 
+    public LocalDateTime getLockExpiresAt() {
+        return lockExpiresAt;
+    }
+
+    public void setLockExpiresAt(LocalDateTime lockExpiresAt) {
+        this.lockExpiresAt = lockExpiresAt;
+    }
+
+    public LocalDateTime getLastLoginAt() {
+        return lastLoginAt;
+    }
+
+    public void setLastLoginAt(LocalDateTime lastLoginAt) {
+        this.lastLoginAt = lastLoginAt;
+    }
+
+    public LocalDateTime getLastSeenAt() {
+        return lastSeenAt;
+    }
+
+    public void setLastSeenAt(LocalDateTime lastSeenAt) {
+        this.lastSeenAt = lastSeenAt;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
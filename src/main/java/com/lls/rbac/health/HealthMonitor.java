@@ -0,0 +1,250 @@
+package com.lls.rbac.health;
+
+import com.lls.rbac.audit.AuditLog;
+import com.lls.rbac.datasource.ReplicaRoutingDataSource;
+import com.lls.rbac.jwt.JwtUtil;
+import com.lls.rbac.security.AuthorizationVersionService;
+import com.lls.rbac.security.RoleHierarchyIndex;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+// Runs the real health checks (database and pool, signing key, authorization caches, audit writer) on a
+// schedule and publishes the outcome as an immutable snapshot. Probes only read the snapshot, so however
+// often the orchestrator polls, the database sees one check per refresh interval.
+//
+// Liveness only asks whether the refresh loop itself is still turning; a dead database must not get the
+// process restarted. Readiness additionally requires a recent snapshot with no critical component DOWN.
+@Component
+public class HealthMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(HealthMonitor.class);
+
+    private static final String PROBE_SUBJECT = "health-probe";
+
+    private final DataSource dataSource;
+    private final JwtUtil jwtUtil;
+    private final RoleHierarchyIndex roleHierarchyIndex;
+    private final AuthorizationVersionService authorizationVersionService;
+    private final AuditLog auditLog;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicas;
+
+    private final int dbTimeoutSeconds;
+    private final double poolSaturationThreshold;
+    private final long readinessStaleAfterMs;
+    private final long livenessStaleAfterMs;
+    private final long versionPollIntervalMs;
+
+    private volatile HealthSnapshot snapshot = HealthSnapshot.starting(System.currentTimeMillis());
+
+    // Set by StartupWarmUp while it runs; the instance is not ready before it finishes
+    private volatile boolean warmingUp;
+
+    // Only touched by the refresh thread
+    private long lastDroppedAuditEvents;
+
+    @Autowired
+    public HealthMonitor(DataSource dataSource,
+                         JwtUtil jwtUtil,
+                         RoleHierarchyIndex roleHierarchyIndex,
+                         AuthorizationVersionService authorizationVersionService,
+                         AuditLog auditLog,
+                         ObjectProvider<ReplicaRoutingDataSource> replicas,
+                         @Value("${rbac.health.db-timeout-seconds:2}") int dbTimeoutSeconds,
+                         @Value("${rbac.health.pool-saturation-threshold:0.9}") double poolSaturationThreshold,
+                         @Value("${rbac.health.readiness-stale-after-ms:15000}") long readinessStaleAfterMs,
+                         @Value("${rbac.health.liveness-stale-after-ms:60000}") long livenessStaleAfterMs,
+                         @Value("${rbac.authz.version.poll-interval-ms:2000}") long versionPollIntervalMs) {
+        this.dataSource = dataSource;
+        this.jwtUtil = jwtUtil;
+        this.roleHierarchyIndex = roleHierarchyIndex;
+        this.authorizationVersionService = authorizationVersionService;
+        this.auditLog = auditLog;
+        this.replicas = replicas;
+        this.dbTimeoutSeconds = dbTimeoutSeconds;
+        this.poolSaturationThreshold = poolSaturationThreshold;
+        this.readinessStaleAfterMs = readinessStaleAfterMs;
+        this.livenessStaleAfterMs = livenessStaleAfterMs;
+        this.versionPollIntervalMs = versionPollIntervalMs;
+    }
+
+    public HealthSnapshot snapshot() {
+        return snapshot;
+    }
+
+    public boolean isLive() {
+        return ageMillis() < livenessStaleAfterMs;
+    }
+
+    public boolean isReady() {
+        HealthSnapshot current = snapshot;
+        return !warmingUp && !current.isInitial() && current.status() != HealthSnapshot.Status.DOWN && ageMillis() < readinessStaleAfterMs;
+    }
+
+    public boolean isWarmingUp() {
+        return warmingUp;
+    }
+
+    void warmUpStarted() {
+        warmingUp = true;
+    }
+
+    void warmUpFinished() {
+        warmingUp = false;
+    }
+
+    public long ageMillis() {
+        return System.currentTimeMillis() - snapshot.checkedAt();
+    }
+
+    @Scheduled(fixedDelayString = "${rbac.health.refresh-interval-ms:5000}")
+    public void refresh() {
+        long started = System.currentTimeMillis();
+        Map<String, HealthSnapshot.Component> components = new LinkedHashMap<>();
+        components.put("database", check(true, this::database));
+        ReplicaRoutingDataSource router = replicas.getIfAvailable();
+        if (router != null) {
+            components.put("replicas", check(false, () -> replicas(router)));
+        }
+        components.put("signingKey", check(true, this::signingKey));
+        components.put("roleHierarchy", check(true, this::roleHierarchy));
+        components.put("authorizationVersion", check(true, this::authorizationVersion));
+        components.put("audit", check(false, this::audit));
+
+        HealthSnapshot.Status status = HealthSnapshot.Status.UP;
+        for (HealthSnapshot.Component component : components.values()) {
+            if (component.status() == HealthSnapshot.Status.DOWN && component.critical()) {
+                status = HealthSnapshot.Status.DOWN;
+                break;
+            }
+            if (component.status() != HealthSnapshot.Status.UP) {
+                status = HealthSnapshot.Status.DEGRADED;
+            }
+        }
+
+        HealthSnapshot previous = snapshot;
+        long finished = System.currentTimeMillis();
+        snapshot = new HealthSnapshot(status, finished, finished - started, Map.copyOf(components));
+        if (status == HealthSnapshot.Status.UP && previous.status() != HealthSnapshot.Status.UP) {
+            log.info("Health is UP");
+        } else if (status != HealthSnapshot.Status.UP && status != previous.status()) {
+            log.warn("Health changed from {} to {}: {}", previous.status(), status, components);
+        }
+    }
+
+    private HealthSnapshot.Component database() throws SQLException {
+        Map<String, Object> details = new LinkedHashMap<>();
+        HealthSnapshot.Status status = HealthSnapshot.Status.UP;
+
+        HikariDataSource hikari = dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        HikariPoolMXBean pool = hikari == null ? null : hikari.getHikariPoolMXBean();
+        if (pool != null) {
+            int max = hikari.getMaximumPoolSize();
+            details.put("active", pool.getActiveConnections());
+            details.put("idle", pool.getIdleConnections());
+            details.put("max", max);
+            details.put("waiting", pool.getThreadsAwaitingConnection());
+            if (pool.getThreadsAwaitingConnection() > 0 || pool.getActiveConnections() >= max * poolSaturationThreshold) {
+                status = HealthSnapshot.Status.DEGRADED;
+                details.put("saturated", true);
+            }
+            // Queueing behind requests for a connection would only add to the pile-up; the last check stands
+            if (pool.getThreadsAwaitingConnection() > 0 && wasReachable("database")) {
+                return new HealthSnapshot.Component(status, true, details);
+            }
+        }
+
+        long started = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.isValid(dbTimeoutSeconds)) {
+                throw new SQLException("Connection is not valid");
+            }
+        }
+        details.put("latencyMs", (System.nanoTime() - started) / 1_000_000);
+        return new HealthSnapshot.Component(status, true, details);
+    }
+
+    private HealthSnapshot.Component replicas(ReplicaRoutingDataSource router) {
+        int healthy = router.healthyReplicas();
+        int total = router.replicaCount();
+        // Reads fall back to the primary, so missing replicas only degrade
+        HealthSnapshot.Status status = healthy == total ? HealthSnapshot.Status.UP : HealthSnapshot.Status.DEGRADED;
+        return new HealthSnapshot.Component(status, false, Map.of("healthy", healthy, "total", total));
+    }
+
+    // Signs and verifies a throwaway token, which fails if the key could not be loaded or is unusable
+    private HealthSnapshot.Component signingKey() {
+        String subject = jwtUtil.validateToken(jwtUtil.generateToken(PROBE_SUBJECT));
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("algorithm", jwtUtil.algorithm().name());
+        if (jwtUtil.keyId() != null) {
+            details.put("kid", jwtUtil.keyId());
+        }
+        HealthSnapshot.Status status = PROBE_SUBJECT.equals(subject) ? HealthSnapshot.Status.UP : HealthSnapshot.Status.DOWN;
+        return new HealthSnapshot.Component(status, true, details);
+    }
+
+    private HealthSnapshot.Component roleHierarchy() {
+        int roles = roleHierarchyIndex.roleCount();
+        HealthSnapshot.Status status = roles > 0 ? HealthSnapshot.Status.UP : HealthSnapshot.Status.DEGRADED;
+        return new HealthSnapshot.Component(status, true, Map.of("roles", roles));
+    }
+
+    // Cached authorities are only trustworthy while this node keeps up with the shared version row
+    private HealthSnapshot.Component authorizationVersion() {
+        long lastReadAt = authorizationVersionService.lastReadAt();
+        if (lastReadAt == 0) {
+            return new HealthSnapshot.Component(HealthSnapshot.Status.DOWN, true, Map.of("reason", "not initialized"));
+        }
+        long ageMs = System.currentTimeMillis() - lastReadAt;
+        HealthSnapshot.Status status = ageMs > 3 * versionPollIntervalMs ? HealthSnapshot.Status.DEGRADED : HealthSnapshot.Status.UP;
+        return new HealthSnapshot.Component(status, true, Map.of("version", authorizationVersionService.seenVersion(), "ageMs", ageMs));
+    }
+
+    private HealthSnapshot.Component audit() {
+        if (!auditLog.isEnabled()) {
+            return new HealthSnapshot.Component(HealthSnapshot.Status.UP, false, Map.of("enabled", false));
+        }
+        long dropped = auditLog.droppedEvents();
+        long droppedSinceLastCheck = dropped - lastDroppedAuditEvents;
+        lastDroppedAuditEvents = dropped;
+
+        HealthSnapshot.Status status = HealthSnapshot.Status.UP;
+        if (!auditLog.isRunning()) {
+            status = HealthSnapshot.Status.DOWN;
+        } else if (droppedSinceLastCheck > 0) {
+            status = HealthSnapshot.Status.DEGRADED;
+        }
+        return new HealthSnapshot.Component(status, false, Map.of(
+                "pending", auditLog.pendingEvents(),
+                "dropped", dropped,
+                "droppedSinceLastCheck", droppedSinceLastCheck));
+    }
+
+    private boolean wasReachable(String component) {
+        HealthSnapshot.Component last = snapshot.components().get(component);
+        return last != null && last.status() != HealthSnapshot.Status.DOWN;
+    }
+
+    private static HealthSnapshot.Component check(boolean critical, Callable<HealthSnapshot.Component> check) {
+        try {
+            return check.call();
+        } catch (Exception e) {
+            String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            return new HealthSnapshot.Component(HealthSnapshot.Status.DOWN, critical, Map.of("error", message));
+        }
+    }
+}
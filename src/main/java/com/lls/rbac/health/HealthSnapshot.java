@@ -0,0 +1,22 @@
+package com.lls.rbac.health;
+
+import java.util.Map;
+
+// Result of one background health refresh. Immutable, so probes can read it without locking.
+public record HealthSnapshot(Status status, long checkedAt, long durationMs, Map<String, Component> components) {
+
+    public enum Status { UP, DEGRADED, DOWN }
+
+    // A critical component that is DOWN takes the instance out of rotation; the others only degrade it
+    public record Component(Status status, boolean critical, Map<String, Object> details) {
+    }
+
+    // Placeholder until the first refresh completes
+    static HealthSnapshot starting(long now) {
+        return new HealthSnapshot(Status.DOWN, now, 0, Map.of());
+    }
+
+    boolean isInitial() {
+        return components.isEmpty();
+    }
+}
@@ -0,0 +1,220 @@
+package com.lls.rbac.health;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lls.rbac.controller.RoleAdminController;
+import com.lls.rbac.dto.ApiResponse;
+import com.lls.rbac.entity.Permission;
+import com.lls.rbac.entity.Role;
+import com.lls.rbac.entity.User;
+import com.lls.rbac.jwt.JwtUtil;
+import com.lls.rbac.repository.UserRepository;
+import com.lls.rbac.security.AuthenticatedUser;
+import com.lls.rbac.security.CustomUserDetailsService;
+import com.lls.rbac.security.RoleHierarchyIndex;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Runs the hot request paths in-process after startup so the first real requests do not pay for cold code:
+// token signing and parsing, user and role queries, authority resolution, JSON serialization, method security
+// and BCrypt. The connection pool is filled first. Readiness stays DOWN until this finishes or times out.
+//
+// Everything runs against a synthetic account that does not exist, so nothing is written.
+@Component
+public class StartupWarmUp {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmUp.class);
+
+    private static final String SYNTHETIC_USERNAME = "__warm-up__";
+
+    private final HealthMonitor healthMonitor;
+    private final DataSource dataSource;
+    private final JwtUtil jwtUtil;
+    private final PasswordEncoder passwordEncoder;
+    private final CustomUserDetailsService userDetailsService;
+    private final UserRepository userRepository;
+    private final RoleHierarchyIndex roleHierarchyIndex;
+    private final RoleAdminController roleAdminController;
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+    private final int iterations;
+    private final int passwordIterations;
+    private final long maxDurationMs;
+
+    @Autowired
+    public StartupWarmUp(HealthMonitor healthMonitor,
+                         DataSource dataSource,
+                         JwtUtil jwtUtil,
+                         PasswordEncoder passwordEncoder,
+                         CustomUserDetailsService userDetailsService,
+                         UserRepository userRepository,
+                         RoleHierarchyIndex roleHierarchyIndex,
+                         RoleAdminController roleAdminController,
+                         ObjectMapper objectMapper,
+                         @Value("${rbac.warmup.enabled:true}") boolean enabled,
+                         @Value("${rbac.warmup.iterations:500}") int iterations,
+                         @Value("${rbac.warmup.password-iterations:3}") int passwordIterations,
+                         @Value("${rbac.warmup.max-duration-ms:20000}") long maxDurationMs) {
+        this.healthMonitor = healthMonitor;
+        this.dataSource = dataSource;
+        this.jwtUtil = jwtUtil;
+        this.passwordEncoder = passwordEncoder;
+        this.userDetailsService = userDetailsService;
+        this.userRepository = userRepository;
+        this.roleHierarchyIndex = roleHierarchyIndex;
+        this.roleAdminController = roleAdminController;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.passwordIterations = passwordIterations;
+        this.maxDurationMs = maxDurationMs;
+    }
+
+    // Before the web server starts, so no readiness probe can see the instance as ready in between
+    @PostConstruct
+    void holdReadiness() {
+        if (enabled) {
+            healthMonitor.warmUpStarted();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::run, "warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void run() {
+        long started = System.currentTimeMillis();
+        long deadline = started + maxDurationMs;
+        int completed = 0;
+        try {
+            int connections = fillPool();
+            String hash = passwordEncoder.encode(SYNTHETIC_USERNAME);
+            while (completed < iterations && System.currentTimeMillis() < deadline) {
+                iteration(completed, hash);
+                completed++;
+            }
+            log.info("Warm-up finished in {} ms: {} iterations, {} pooled connections",
+                    System.currentTimeMillis() - started, completed, connections);
+        } catch (Exception e) {
+            log.warn("Warm-up stopped after {} iterations: {}", completed, e.getMessage());
+        } finally {
+            healthMonitor.warmUpFinished();
+        }
+    }
+
+    // Opens connections up to the pool's idle floor at once instead of on the first requests that need them
+    private int fillPool() throws SQLException {
+        HikariDataSource hikari = dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        int target = hikari == null ? 1 : Math.max(1, hikari.getMinimumIdle());
+        List<Connection> held = new ArrayList<>(target);
+        try {
+            for (int i = 0; i < target; i++) {
+                Connection connection = dataSource.getConnection();
+                held.add(connection);
+                connection.isValid(2);
+            }
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+        return held.size();
+    }
+
+    private void iteration(int iteration, String hash) throws Exception {
+        String token = jwtUtil.generateToken(SYNTHETIC_USERNAME);
+        jwtUtil.validateToken(token);
+        jwtUtil.parseClaims(token);
+
+        try {
+            userDetailsService.loadPrincipal(SYNTHETIC_USERNAME);
+        } catch (UsernameNotFoundException e) {
+            // Expected, the account does not exist
+        }
+        userRepository.findProfileByUsername(SYNTHETIC_USERNAME);
+        userRepository.existsByUsername(SYNTHETIC_USERNAME);
+        userRepository.findForAuthenticationByUsernameIn(List.of(SYNTHETIC_USERNAME));
+        userRepository.findActiveRoleNamesByUsernameIn(List.of(SYNTHETIC_USERNAME));
+
+        Set<GrantedAuthority> authorities = roleHierarchyIndex.authoritiesForRoleNames(List.of("USER", "ADMIN"));
+        syntheticUser().getAuthorities();
+
+        objectMapper.writeValueAsBytes(ApiResponse.body()
+                .success(true)
+                .data(Map.of("username", SYNTHETIC_USERNAME, "authorities", authorities, "iteration", iteration))
+                .status(HttpStatus.OK)
+                .build()
+                .getBody());
+
+        methodSecurity();
+
+        if (iteration < passwordIterations) {
+            passwordEncoder.matches(SYNTHETIC_USERNAME, hash);
+        }
+    }
+
+    // One call that passes @PreAuthorize and one that is denied
+    private void methodSecurity() throws Exception {
+        try {
+            authenticateAs("ROLE_ADMIN");
+            objectMapper.writeValueAsBytes(roleAdminController.members("USER", 0, 1, "none").getBody());
+
+            authenticateAs("ROLE_USER");
+            try {
+                roleAdminController.members("USER", 0, 1, "none");
+            } catch (AccessDeniedException e) {
+                // Expected
+            }
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static void authenticateAs(String role) {
+        AuthenticatedUser principal = new AuthenticatedUser(null, SYNTHETIC_USERNAME, true, true, true, true,
+                Set.of(new SimpleGrantedAuthority(role)));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private static User syntheticUser() {
+        Permission permission = new Permission();
+        permission.setName("USER_READ");
+        Role role = new Role();
+        role.setName("USER");
+        role.getPermissions().add(permission);
+        User user = new User();
+        user.setUsername(SYNTHETIC_USERNAME);
+        user.getRoles().add(role);
+        return user;
+    }
+}
@@ -6,13 +6,15 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import com.lls.rbac.security.AuthenticatedUser;
+import com.lls.rbac.security.CustomUserDetailsService;
+import com.lls.rbac.security.PublicRouteRegistry;
+import com.lls.rbac.service.UserActivityTracker;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
@@ -23,11 +25,15 @@ public class JwtFilter extends OncePerRequestFilter {
     private static final Logger logger = LogManager.getLogger(JwtFilter.class);
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
-    private UserDetailsService userDetailsService;
+    private CustomUserDetailsService userDetailsService;
 
     private JwtUtil jwtUtil;
 
-    public void setUserDetailsService(UserDetailsService userDetailsService) {
+    private PublicRouteRegistry publicRouteRegistry;
+
+    private UserActivityTracker userActivityTracker;
+
+    public void setUserDetailsService(CustomUserDetailsService userDetailsService) {
         this.userDetailsService = userDetailsService;
     }
 
@@ -35,6 +41,14 @@ public class JwtFilter extends OncePerRequestFilter {
         this.jwtUtil = jwtUtil;
     }
 
+    public void setPublicRouteRegistry(PublicRouteRegistry publicRouteRegistry) {
+        this.publicRouteRegistry = publicRouteRegistry;
+    }
+
+    public void setUserActivityTracker(UserActivityTracker userActivityTracker) {
+        this.userActivityTracker = userActivityTracker;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         try {
@@ -47,14 +61,12 @@ public class JwtFilter extends OncePerRequestFilter {
                         String username = jwtUtil.validateToken(token);
                         
                         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                            
-                            if (userDetails != null) {
-                                UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
-                                        userDetails, null, userDetails.getAuthorities());
-                                SecurityContextHolder.getContext().setAuthentication(auth);
-                                logger.info("User authenticated: {} with authorities: {}", username, userDetails.getAuthorities());
-                            }
+                            AuthenticatedUser principal = userDetailsService.loadPrincipal(username);
+                            UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
+                                    principal, null, principal.getAuthorities());
+                            SecurityContextHolder.getContext().setAuthentication(auth);
+                            userActivityTracker.recordSeen(principal.id());
+                            logger.info("User authenticated: {} with authorities: {}", username, principal.getAuthorities());
                         }
                         break;
                     }
@@ -70,9 +82,6 @@ public class JwtFilter extends OncePerRequestFilter {
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
-        String path = request.getRequestURI();
-        return path.startsWith("/api/auth/") || path.startsWith("/user/") || path.startsWith("/session/") || 
-               path.startsWith("/swagger-ui/") || path.startsWith("/api-docs/") ||
-               path.equals("/swagger-ui.html");
+        return publicRouteRegistry.isPublic(request);
     }
 }
\ No newline at end of file
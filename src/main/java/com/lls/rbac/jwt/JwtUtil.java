@@ -1,40 +1,121 @@
 package com.lls.rbac.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Component
 public class JwtUtil {
+    private static final Logger log = LoggerFactory.getLogger(JwtUtil.class);
+
     private static final long EXPIRATION_TIME = 8 * 60 * 60 * 1000; // 8 hours
-    
-    // Generate a persistent key that's stored in memory for the application lifecycle
-    private static final SecretKey SECRET_KEY = Jwts.SIG.HS512.key().build();
-    //private static final String SECRET_KEY = "limartdevacc-secret-key-must-be-at-least-32-bytes-long-for-hmac-sha-algorithms";
+
+    public enum Algorithm { HS512, ES256, EdDSA }
+
+    private final Algorithm algorithm;
+    private final Key signingKey;
+    private final String keyId;
+
+    // Public keys accepted for verification and published in the JWKS, by key ID
+    private final Map<String, PublicKey> verificationKeys = new LinkedHashMap<>();
+    private final List<Map<String, Object>> publicJwks = new ArrayList<>();
+
+    // Parsers are immutable and thread-safe, so one instance serves every verification
+    private final JwtParser parser;
+
+    public JwtUtil(@Value("${rbac.jwt.algorithm:HS512}") Algorithm algorithm,
+                   @Value("${rbac.jwt.private-key-path:}") String privateKeyPath,
+                   @Value("${rbac.jwt.public-key-path:}") String publicKeyPath,
+                   @Value("${rbac.jwt.previous-public-key-path:}") String previousPublicKeyPath) throws IOException, GeneralSecurityException {
+        this.algorithm = algorithm;
+
+        if (algorithm == Algorithm.HS512) {
+            // Generate a persistent key that's stored in memory for the application lifecycle
+            SecretKey secretKey = Jwts.SIG.HS512.key().build();
+            this.signingKey = secretKey;
+            this.keyId = null;
+            this.parser = Jwts.parser().verifyWith(secretKey).build();
+            return;
+        }
+
+        KeyPair keyPair;
+        if (privateKeyPath.isBlank()) {
+            // Fine for a single node; every node of a cluster needs the same configured key pair.
+            // EdDSA keys are Ed25519, the curve JWT libraries support most widely.
+            keyPair = algorithm == Algorithm.ES256 ? Jwts.SIG.ES256.keyPair().build() : Jwks.CRV.Ed25519.keyPair().build();
+            log.warn("No rbac.jwt.private-key-path set, signing {} tokens with a key generated for this process", algorithm);
+        } else {
+            keyPair = new KeyPair(readPublicKey(algorithm, Path.of(publicKeyPath)), readPrivateKey(algorithm, Path.of(privateKeyPath)));
+        }
+        this.signingKey = keyPair.getPrivate();
+        this.keyId = publish(keyPair.getPublic());
+        if (!previousPublicKeyPath.isBlank()) {
+            // Keeps tokens signed before a key rotation valid until they expire
+            publish(readPublicKey(algorithm, Path.of(previousPublicKeyPath)));
+        }
+
+        this.parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        return header.getKeyId() == null ? null : verificationKeys.get(header.getKeyId());
+                    }
+                })
+                .build();
+    }
 
     public String generateToken(String username) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + EXPIRATION_TIME);
 
+        if (algorithm == Algorithm.HS512) {
+            return Jwts.builder()
+                    .subject(username)
+                    .issuedAt(now)
+                    .expiration(expiryDate)
+                    .signWith((SecretKey) signingKey, Jwts.SIG.HS512)
+                    .compact();
+        }
         return Jwts.builder()
+                .header().keyId(keyId).and()
                 .subject(username)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(SECRET_KEY, Jwts.SIG.HS512)
+                .signWith((PrivateKey) signingKey, signatureAlgorithm(algorithm))
                 .compact();
     }
 
     public String validateToken(String token) {
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(SECRET_KEY)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            Claims claims = parser.parseSignedClaims(token).getPayload();
 
             return claims.getSubject();
         } catch (Exception e) {
@@ -44,11 +125,7 @@ public class JwtUtil {
 
     public boolean isTokenExpired(String token) {
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(SECRET_KEY)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            Claims claims = parser.parseSignedClaims(token).getPayload();
 
             return claims.getExpiration().before(new Date());
         } catch (Exception e) {
@@ -58,15 +135,73 @@ public class JwtUtil {
 
     public String getUsernameFromToken(String token) {
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(SECRET_KEY)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            Claims claims = parser.parseSignedClaims(token).getPayload();
 
             return claims.getSubject();
         } catch (Exception e) {
             return null;
         }
     }
+
+    // Returns the verified claims, or null when the token is malformed, forged or expired
+    public Claims parseClaims(String token) {
+        try {
+            return parser.parseSignedClaims(token).getPayload();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // Public verification keys as JWKs; empty in HS512 mode, where the key is a shared secret
+    public List<Map<String, Object>> publicJwks() {
+        return publicJwks;
+    }
+
+    public String keyId() {
+        return keyId;
+    }
+
+    public Algorithm algorithm() {
+        return algorithm;
+    }
+
+    private String publish(PublicKey publicKey) {
+        PublicJwk<?> jwk = Jwks.builder()
+                .key(publicKey)
+                .algorithm(algorithm.name())
+                .publicKeyUse("sig")
+                .idFromThumbprint()
+                .build();
+        if (verificationKeys.putIfAbsent(jwk.getId(), publicKey) == null) {
+            publicJwks.add(Map.copyOf(jwk));
+        }
+        return jwk.getId();
+    }
+
+    private static SignatureAlgorithm signatureAlgorithm(Algorithm algorithm) {
+        return algorithm == Algorithm.ES256 ? Jwts.SIG.ES256 : Jwts.SIG.EdDSA;
+    }
+
+    private static String keyFactoryAlgorithm(Algorithm algorithm) {
+        return algorithm == Algorithm.ES256 ? "EC" : "EdDSA";
+    }
+
+    // PEM files as written by openssl: PKCS#8 private keys and X.509 SubjectPublicKeyInfo public keys
+    private static PrivateKey readPrivateKey(Algorithm algorithm, Path path) throws IOException, GeneralSecurityException {
+        return KeyFactory.getInstance(keyFactoryAlgorithm(algorithm)).generatePrivate(new PKCS8EncodedKeySpec(pem(path)));
+    }
+
+    private static PublicKey readPublicKey(Algorithm algorithm, Path path) throws IOException, GeneralSecurityException {
+        return KeyFactory.getInstance(keyFactoryAlgorithm(algorithm)).generatePublic(new X509EncodedKeySpec(pem(path)));
+    }
+
+    private static byte[] pem(Path path) throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (String line : Files.readAllLines(path)) {
+            if (!line.startsWith("-----")) {
+                body.append(line.trim());
+            }
+        }
+        return Base64.getDecoder().decode(body.toString());
+    }
 }
@@ -0,0 +1,58 @@
+package com.lls.rbac.limit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Login and registration spend their time in BCrypt, everything else in MySQL; each gets its own limit so a
+// login storm cannot starve ordinary API calls and the other way round. Health probes are never limited.
+@Component
+public class ConcurrencyLimits {
+
+    private static final List<String> AUTH_PATHS = List.of("/api/auth/login", "/api/auth/register");
+
+    private final boolean enabled;
+    private final AdaptiveConcurrencyLimit auth;
+    private final AdaptiveConcurrencyLimit api;
+
+    public ConcurrencyLimits(@Value("${rbac.limit.enabled:true}") boolean enabled,
+                             @Value("${rbac.limit.auth.initial-limit:8}") int authInitial,
+                             @Value("${rbac.limit.auth.min-limit:2}") int authMin,
+                             @Value("${rbac.limit.auth.max-limit:64}") int authMax,
+                             @Value("${rbac.limit.api.initial-limit:50}") int apiInitial,
+                             @Value("${rbac.limit.api.min-limit:10}") int apiMin,
+                             @Value("${rbac.limit.api.max-limit:400}") int apiMax) {
+        this.enabled = enabled;
+        this.auth = new AdaptiveConcurrencyLimit("auth", authInitial, authMin, authMax);
+        this.api = new AdaptiveConcurrencyLimit("api", apiInitial, apiMin, apiMax);
+    }
+
+    // The limit a request counts against, or null when it is not limited
+    public AdaptiveConcurrencyLimit forRequest(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!enabled || !path.startsWith("/api/") || path.startsWith("/api/health")) {
+            return null;
+        }
+        return AUTH_PATHS.contains(path) ? auth : api;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long rejected() {
+        return auth.rejected() + api.rejected();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put(auth.name(), auth.stats());
+        stats.put(api.name(), api.stats());
+        return stats;
+    }
+}
@@ -2,8 +2,12 @@ package com.lls.rbac.repository;
 
 import com.lls.rbac.entity.Permission;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +16,16 @@ public interface PermissionRepository extends JpaRepository<Permission, Long> {
     Optional<Permission> findByName(String name);
     
     boolean existsByName(String name);
-} 
\ No newline at end of file
+    
+    // Set-based grants on role_permissions; neither side's collections are loaded
+    @Modifying
+    @Query(value = "INSERT INTO role_permissions (role_id, permission_id) "
+            + "SELECT r.id, p.id FROM roles r, permissions p WHERE p.name = :permissionName AND r.name IN (:roleNames) "
+            + "AND NOT EXISTS (SELECT 1 FROM role_permissions rp WHERE rp.role_id = r.id AND rp.permission_id = p.id)", nativeQuery = true)
+    int grantToRoles(@Param("permissionName") String permissionName, @Param("roleNames") Collection<String> roleNames);
+    
+    @Modifying
+    @Query(value = "DELETE FROM role_permissions WHERE permission_id = (SELECT p.id FROM permissions p WHERE p.name = :permissionName) "
+            + "AND role_id IN (SELECT r.id FROM roles r WHERE r.name IN (:roleNames))", nativeQuery = true)
+    int revokeFromRoles(@Param("permissionName") String permissionName, @Param("roleNames") Collection<String> roleNames);
+} 
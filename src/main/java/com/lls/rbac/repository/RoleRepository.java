@@ -1,11 +1,18 @@
 package com.lls.rbac.repository;
 
 import com.lls.rbac.entity.Role;
+import com.lls.rbac.repository.projection.RoleMemberView;
+import com.lls.rbac.repository.projection.RoleSummaryView;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,9 +22,47 @@ public interface RoleRepository extends JpaRepository<Role, Long> {
     
     boolean existsByName(String name);
     
-    @Query("SELECT r FROM Role r JOIN FETCH r.permissions WHERE r.name = :name")
+    @EntityGraph(Role.PERMISSIONS_GRAPH)
+    @Query("SELECT r FROM Role r WHERE r.name = :name")
     Optional<Role> findByNameWithPermissions(@Param("name") String name);
     
-    @Query("SELECT r FROM Role r JOIN FETCH r.permissions WHERE r.id = :id")
+    @EntityGraph(Role.PERMISSIONS_GRAPH)
+    @Query("SELECT r FROM Role r WHERE r.id = :id")
     Optional<Role> findByIdWithPermissions(@Param("id") Long id);
-} 
\ No newline at end of file
+    
+    @EntityGraph(Role.PERMISSIONS_GRAPH)
+    @Query("SELECT r FROM Role r")
+    List<Role> findAllWithPermissions();
+    
+    // Set-based membership changes on user_roles; neither side's collections are loaded
+    @Modifying
+    @Query(value = "INSERT INTO user_roles (user_id, role_id) "
+            + "SELECT u.id, r.id FROM users u, roles r WHERE r.name = :roleName AND u.username IN (:usernames) "
+            + "AND NOT EXISTS (SELECT 1 FROM user_roles ur WHERE ur.user_id = u.id AND ur.role_id = r.id)", nativeQuery = true)
+    int addMembers(@Param("roleName") String roleName, @Param("usernames") Collection<String> usernames);
+    
+    @Modifying
+    @Query(value = "DELETE FROM user_roles WHERE role_id = (SELECT r.id FROM roles r WHERE r.name = :roleName) "
+            + "AND user_id IN (SELECT u.id FROM users u WHERE u.username IN (:usernames))", nativeQuery = true)
+    int removeMembers(@Param("roleName") String roleName, @Param("usernames") Collection<String> usernames);
+    
+    // Keyset pages: pass the last id of the previous page as afterId, 0 for the first page
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.enabled AS enabled "
+            + "FROM User u JOIN u.roles r WHERE r.name = :roleName AND u.id > :afterId ORDER BY u.id")
+    List<RoleMemberView> findMembers(@Param("roleName") String roleName, @Param("afterId") long afterId, Limit limit);
+    
+    @Query("SELECT r.id AS id, r.name AS name, r.description AS description "
+            + "FROM Role r JOIN r.permissions p WHERE p.name = :permissionName AND r.id > :afterId ORDER BY r.id")
+    List<RoleSummaryView> findRolesWithPermission(@Param("permissionName") String permissionName, @Param("afterId") long afterId, Limit limit);
+    
+    @Query(value = "SELECT COUNT(*) FROM user_roles ur JOIN roles r ON r.id = ur.role_id WHERE r.name = :roleName", nativeQuery = true)
+    long countMembers(@Param("roleName") String roleName);
+    
+    // Stops counting at the cap, so the cost is bounded however large the role is
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 FROM user_roles ur JOIN roles r ON r.id = ur.role_id "
+            + "WHERE r.name = :roleName LIMIT :cap) capped", nativeQuery = true)
+    long countMembersUpTo(@Param("roleName") String roleName, @Param("cap") int cap);
+    
+    @Query(value = "SELECT COUNT(*) FROM role_permissions rp JOIN permissions p ON p.id = rp.permission_id WHERE p.name = :permissionName", nativeQuery = true)
+    long countRolesWithPermission(@Param("permissionName") String permissionName);
+}
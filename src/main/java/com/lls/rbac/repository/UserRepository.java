@@ -1,27 +1,96 @@
 package com.lls.rbac.repository;
 
 import com.lls.rbac.entity.User;
+import com.lls.rbac.repository.projection.DirectoryUserView;
+import com.lls.rbac.repository.projection.UserProfileView;
+import com.lls.rbac.repository.projection.UserRoleIdView;
+import com.lls.rbac.repository.projection.UserRoleView;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+// Lookups on the authentication and profile paths are read-only transactions, which lets them run on a replica
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     
+    @Transactional(readOnly = true)
     Optional<User> findByUsername(String username);
     
+    // Scalar columns only, no roles
+    @Transactional(readOnly = true)
+    Optional<UserProfileView> findProfileByUsername(String username);
+    
     Optional<User> findByEmail(String email);
     
+    @Transactional(readOnly = true)
     boolean existsByUsername(String username);
     
+    @Transactional(readOnly = true)
     boolean existsByEmail(String email);
     
-    @Query("SELECT u FROM User u JOIN FETCH u.roles r JOIN FETCH r.permissions WHERE u.username = :username")
-    Optional<User> findByUsernameWithRolesAndPermissions(@Param("username") String username);
+    // Graphs fetch with outer joins, so a user without roles is still found
+    @Transactional(readOnly = true)
+    @EntityGraph(User.AUTHENTICATION_GRAPH)
+    Optional<User> findForAuthenticationByUsername(String username);
+    
+    @Transactional(readOnly = true)
+    @EntityGraph(User.AUTHENTICATION_GRAPH)
+    List<User> findForAuthenticationByUsernameIn(Collection<String> usernames);
+    
+    // A lock with an expiry is a failed-login lockout, which only stops password logins (see User.isSessionLocked)
+    @Transactional(readOnly = true)
+    @Query("SELECT u.username AS username, r.name AS roleName FROM User u LEFT JOIN u.roles r WHERE u.username IN :usernames "
+            + "AND u.enabled = true AND u.accountNonExpired = true AND u.credentialsNonExpired = true "
+            + "AND (u.accountNonLocked = true OR u.lockExpiresAt IS NOT NULL)")
+    List<UserRoleView> findActiveRoleNamesByUsernameIn(@Param("usernames") Collection<String> usernames);
     
-    @Query("SELECT u FROM User u JOIN FETCH u.roles WHERE u.id = :id")
+    @EntityGraph(User.AUTHENTICATION_GRAPH)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
     Optional<User> findByIdWithRoles(@Param("id") Long id);
-} 
\ No newline at end of file
+    
+    // Pages for the user directory: everyone by id, or rows changed since an (updatedAt, id) position
+    @Transactional(readOnly = true)
+    @Query("SELECT u.id AS id, u.username AS username, u.password AS password, u.enabled AS enabled, "
+            + "u.accountNonExpired AS accountNonExpired, u.accountNonLocked AS accountNonLocked, "
+            + "u.lockExpiresAt AS lockExpiresAt, u.credentialsNonExpired AS credentialsNonExpired, u.updatedAt AS updatedAt "
+            + "FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<DirectoryUserView> findDirectoryPage(@Param("afterId") long afterId, Limit limit);
+    
+    @Transactional(readOnly = true)
+    @Query("SELECT u.id AS id, u.username AS username, u.password AS password, u.enabled AS enabled, "
+            + "u.accountNonExpired AS accountNonExpired, u.accountNonLocked AS accountNonLocked, "
+            + "u.lockExpiresAt AS lockExpiresAt, u.credentialsNonExpired AS credentialsNonExpired, u.updatedAt AS updatedAt "
+            + "FROM User u WHERE u.updatedAt > :since OR (u.updatedAt = :since AND u.id > :afterId) ORDER BY u.updatedAt, u.id")
+    List<DirectoryUserView> findDirectoryChanges(@Param("since") LocalDateTime since, @Param("afterId") long afterId, Limit limit);
+    
+    @Transactional(readOnly = true)
+    long countByIdLessThanEqual(Long id);
+    
+    @Transactional(readOnly = true)
+    @Query("SELECT u.id FROM User u WHERE u.id IN :userIds")
+    List<Long> findExistingIds(@Param("userIds") Collection<Long> userIds);
+    
+    @Transactional(readOnly = true)
+    @Query("SELECT u.id AS userId, r.id AS roleId FROM User u JOIN u.roles r WHERE u.id IN :userIds")
+    List<UserRoleIdView> findRoleIdsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+    
+    // For changes made with set-based SQL, so pollers of updated_at see them
+    @Modifying
+    @Query("UPDATE User u SET u.updatedAt = :updatedAt WHERE u.username IN :usernames")
+    int touch(@Param("usernames") Collection<String> usernames, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password, u.updatedAt = :updatedAt WHERE u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password, @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -0,0 +1,24 @@
+package com.lls.rbac.repository.projection;
+
+import java.time.LocalDateTime;
+
+public interface DirectoryUserView {
+
+    Long getId();
+
+    String getUsername();
+
+    String getPassword();
+
+    Boolean getEnabled();
+
+    Boolean getAccountNonExpired();
+
+    Boolean getAccountNonLocked();
+
+    LocalDateTime getLockExpiresAt();
+
+    Boolean getCredentialsNonExpired();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,12 @@
+package com.lls.rbac.repository.projection;
+
+public interface RoleMemberView {
+
+    Long getId();
+
+    String getUsername();
+
+    String getEmail();
+
+    Boolean getEnabled();
+}
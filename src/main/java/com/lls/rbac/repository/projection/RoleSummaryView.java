@@ -0,0 +1,10 @@
+package com.lls.rbac.repository.projection;
+
+public interface RoleSummaryView {
+
+    Long getId();
+
+    String getName();
+
+    String getDescription();
+}
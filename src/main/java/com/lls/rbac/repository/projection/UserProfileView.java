@@ -0,0 +1,14 @@
+package com.lls.rbac.repository.projection;
+
+public interface UserProfileView {
+
+    String getUsername();
+
+    String getEmail();
+
+    String getFirstName();
+
+    String getMiddleName();
+
+    String getLastName();
+}
@@ -0,0 +1,8 @@
+package com.lls.rbac.repository.projection;
+
+public interface UserRoleIdView {
+
+    Long getUserId();
+
+    Long getRoleId();
+}
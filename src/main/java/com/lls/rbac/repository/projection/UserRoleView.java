@@ -0,0 +1,8 @@
+package com.lls.rbac.repository.projection;
+
+public interface UserRoleView {
+
+    String getUsername();
+
+    String getRoleName();
+}
@@ -0,0 +1,34 @@
+package com.lls.rbac.security;
+
+import com.lls.rbac.audit.AuditEvent;
+import com.lls.rbac.audit.AuditLog;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.access.AccessDeniedHandler;
+import org.springframework.security.web.access.AccessDeniedHandlerImpl;
+
+import java.io.IOException;
+
+// Records every denial raised in the security chain or by method security, then answers with the default 403
+public class AuditingAccessDeniedHandler implements AccessDeniedHandler {
+
+    private final AuditLog auditLog;
+    private final AccessDeniedHandler delegate = new AccessDeniedHandlerImpl();
+
+    public AuditingAccessDeniedHandler(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    @Override
+    public void handle(HttpServletRequest request, HttpServletResponse response, AccessDeniedException accessDeniedException)
+            throws IOException, ServletException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        auditLog.record(AuditEvent.Type.ACCESS_DENIED, auth != null ? auth.getName() : null, request.getRemoteAddr(),
+                request.getMethod() + " " + request.getRequestURI());
+        delegate.handle(request, response, accessDeniedException);
+    }
+}
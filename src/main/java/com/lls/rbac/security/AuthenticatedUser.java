@@ -0,0 +1,62 @@
+package com.lls.rbac.security;
+
+import com.lls.rbac.entity.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Set;
+
+// What a token-authenticated request keeps in its SecurityContext: no password hash, no entity graph to lazy-load
+// from, and authorities resolved once when the principal is built
+public record AuthenticatedUser(Long id,
+                                String username,
+                                boolean enabled,
+                                boolean accountNonExpired,
+                                boolean accountNonLocked,
+                                boolean credentialsNonExpired,
+                                Set<GrantedAuthority> authorities) implements UserDetails {
+
+    public AuthenticatedUser {
+        authorities = Set.copyOf(authorities);
+    }
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.isEnabled(), user.isAccountNonExpired(),
+                user.isAccountNonLocked(), user.isCredentialsNonExpired(), Set.copyOf(user.getAuthorities()));
+    }
+
+    @Override
+    public Set<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return accountNonExpired;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return accountNonLocked;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return credentialsNonExpired;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
@@ -0,0 +1,140 @@
+package com.lls.rbac.security;
+
+import com.lls.rbac.entity.Permission;
+import com.lls.rbac.entity.Role;
+import com.lls.rbac.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+// Bumps the authorization version, once per transaction, whenever Hibernate flushes a change to a role,
+// a permission, a role's permissions or a user's roles. Bulk SQL bypasses these events and has to call
+// AuthorizationVersionService.bump() itself.
+@Component
+public class AuthorizationChangeListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final AuthorizationVersionService authorizationVersionService;
+
+    @Autowired
+    public AuthorizationChangeListener(EntityManagerFactory entityManagerFactory, AuthorizationVersionService authorizationVersionService) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.authorizationVersionService = authorizationVersionService;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        onEntityChange(event.getEntity(), event.getSession());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        onEntityChange(event.getEntity(), event.getSession());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        onEntityChange(event.getEntity(), event.getSession());
+    }
+
+    // A new user's roles arrive as a collection recreate, which is deliberately not handled: no node can hold
+    // stale data about a user that did not exist. Replacing an existing collection also removes the old one.
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        onCollectionChange(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        onCollectionChange(event);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void onEntityChange(Object entity, EventSource session) {
+        if (entity instanceof Role || entity instanceof Permission) {
+            bumpOnce(session);
+        }
+    }
+
+    private void onCollectionChange(AbstractCollectionEvent event) {
+        Object owner = event.getAffectedOwnerOrNull();
+        if (owner instanceof User || owner instanceof Role || owner instanceof Permission) {
+            bumpOnce(event.getSession());
+        }
+        // A roles-only change does not update the users row, so the user directory would not notice it
+        if (owner instanceof User user && user.getId() != null) {
+            event.getSession().doWork(connection -> touch(connection, user.getId()));
+        }
+    }
+
+    private static void touch(Connection connection, Long userId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE users SET updated_at = ? WHERE id = ?")) {
+            statement.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            statement.setLong(2, userId);
+            statement.executeUpdate();
+        }
+    }
+
+    private void bumpOnce(EventSource session) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (TransactionSynchronizationManager.hasResource(this)) {
+                return;
+            }
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    authorizationVersionService.poll();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AuthorizationChangeListener.this);
+                }
+            });
+        }
+        session.doWork(AuthorizationVersionService::bump);
+    }
+}
@@ -0,0 +1,4 @@
+package com.lls.rbac.security;
+
+// Published on a node when the shared authorization version moves past the one it last saw
+public record AuthorizationChangedEvent(long previousVersion, long version) {}
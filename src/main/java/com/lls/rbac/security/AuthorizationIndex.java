@@ -0,0 +1,104 @@
+package com.lls.rbac.security;
+
+import com.lls.rbac.repository.UserRepository;
+import com.lls.rbac.repository.projection.UserRoleView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// In-memory view of the user -> role -> permission relations used to answer authorization checks
+// without touching the database per check. Role authorities come from the role hierarchy; users are resolved on demand in batches.
+// Disabled, expired and locked accounts hold no authorities. Entries also expire after a short time, so changes that
+// raise no authorization event, such as an account being disabled or locked, are picked up within that time.
+@Component
+public class AuthorizationIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorizationIndex.class);
+
+    private final RoleHierarchyIndex roleHierarchyIndex;
+    private final UserRepository userRepository;
+    private final int maxCachedUsers;
+    private final long ttlMs;
+
+    private final Map<String, Entry> userAuthorities = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AuthorizationIndex(RoleHierarchyIndex roleHierarchyIndex,
+                              UserRepository userRepository,
+                              @Value("${rbac.authz.index.max-cached-users:10000}") int maxCachedUsers,
+                              @Value("${rbac.authz.index.ttl-ms:30000}") long ttlMs) {
+        this.roleHierarchyIndex = roleHierarchyIndex;
+        this.userRepository = userRepository;
+        this.maxCachedUsers = maxCachedUsers;
+        this.ttlMs = ttlMs;
+    }
+
+    public boolean isGranted(String username, String authority) {
+        return authoritiesOf(List.of(username)).getOrDefault(username, Set.of()).contains(authority);
+    }
+
+    // Resolves the effective authorities of every given user, loading the missing ones with a single query
+    public Map<String, Set<String>> authoritiesOf(Collection<String> usernames) {
+        Map<String, Set<String>> result = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        long now = System.currentTimeMillis();
+        for (String username : usernames) {
+            Entry entry = userAuthorities.get(username);
+            if (entry != null && now - entry.loadedAt() < ttlMs) {
+                result.put(username, entry.authorities());
+            } else {
+                missing.add(username);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<String, Set<String>> roleNames = new HashMap<>();
+            // Users left out are unknown or inactive and are granted nothing
+            for (UserRoleView row : userRepository.findActiveRoleNamesByUsernameIn(missing)) {
+                Set<String> names = roleNames.computeIfAbsent(row.getUsername(), u -> new HashSet<>());
+                if (row.getRoleName() != null) {
+                    names.add(row.getRoleName());
+                }
+            }
+            Map<String, Set<String>> loaded = new HashMap<>();
+            roleNames.forEach((username, names) -> loaded.put(username, roleHierarchyIndex.authoritiesForRoleNames(names).stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .collect(Collectors.toSet())));
+
+            if (userAuthorities.size() + loaded.size() > maxCachedUsers) {
+                userAuthorities.clear();
+            }
+            loaded.forEach((username, authorities) -> {
+                Set<String> frozen = Set.copyOf(authorities);
+                userAuthorities.put(username, new Entry(frozen, now));
+                result.put(username, frozen);
+            });
+        }
+        return result;
+    }
+
+    // Runs after the role hierarchy has reloaded, so refilled entries never see the old hierarchy
+    @EventListener(AuthorizationChangedEvent.class)
+    @Order(1)
+    public void invalidate() {
+        userAuthorities.clear();
+        log.debug("Authorization index invalidated");
+    }
+
+    private record Entry(Set<String> authorities, long loadedAt) {
+    }
+}
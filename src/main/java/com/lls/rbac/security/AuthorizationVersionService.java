@@ -0,0 +1,116 @@
+package com.lls.rbac.security;
+
+import com.lls.rbac.entity.AuthorizationVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+// Owns the authorization_version row. Writers bump it inside their own transaction; every node polls it
+// and publishes an AuthorizationChangedEvent when it moves, so in-memory role and authority data is dropped
+// at most one poll interval after a change committed anywhere.
+@Service
+public class AuthorizationVersionService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorizationVersionService.class);
+
+    private static final String BUMP_SQL = "UPDATE authorization_version SET version = version + 1 WHERE id = " + AuthorizationVersion.SINGLETON_ID;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private volatile long seenVersion = -1;
+    private volatile long lastReadAt;
+
+    @Autowired
+    public AuthorizationVersionService(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public long seenVersion() {
+        return seenVersion;
+    }
+
+    // When the version row was last read successfully, in epoch millis; 0 before the first read
+    public long lastReadAt() {
+        return lastReadAt;
+    }
+
+    // Joins the caller's transaction, so the bump commits or rolls back together with the change it announces
+    public void bump() {
+        jdbcTemplate.update(BUMP_SQL);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Lets the writing node pick up its own change right away instead of waiting for the next poll
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    poll();
+                }
+            });
+        } else {
+            poll();
+        }
+    }
+
+    // Same as bump() for callers that only have a raw connection, such as Hibernate event listeners
+    static void bump(Connection connection) throws SQLException {
+        try (var statement = connection.createStatement()) {
+            statement.executeUpdate(BUMP_SQL);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            jdbcTemplate.update("INSERT INTO authorization_version (id, version) VALUES (?, 0)", AuthorizationVersion.SINGLETON_ID);
+        } catch (DuplicateKeyException e) {
+            // Another node, or an earlier run, created it
+        }
+        seenVersion = currentVersion();
+        lastReadAt = System.currentTimeMillis();
+    }
+
+    @Scheduled(fixedDelayString = "${rbac.authz.version.poll-interval-ms:2000}")
+    public void poll() {
+        if (seenVersion < 0) {
+            return;
+        }
+        long current;
+        try {
+            current = currentVersion();
+            lastReadAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            log.error("Failed to read the authorization version: {}", e.getMessage());
+            return;
+        }
+
+        long previous;
+        synchronized (this) {
+            previous = seenVersion;
+            if (current <= previous) {
+                return;
+            }
+            seenVersion = current;
+        }
+        log.debug("Authorization version moved from {} to {}", previous, current);
+        eventPublisher.publishEvent(new AuthorizationChangedEvent(previous, current));
+    }
+
+    private long currentVersion() {
+        List<Long> versions = jdbcTemplate.queryForList("SELECT version FROM authorization_version WHERE id = ?", Long.class, AuthorizationVersion.SINGLETON_ID);
+        return versions.isEmpty() ? 0 : versions.get(0);
+    }
+}
@@ -0,0 +1,162 @@
+package com.lls.rbac.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Answers CORS preflight requests before they reach the security filter chain.
+// Everything is compiled from the same CorsConfiguration the chain uses, so both paths agree.
+public class CorsPreflightFilter extends OncePerRequestFilter {
+
+    private final Set<String> exactOrigins = new HashSet<>();
+    private final List<Pattern> originPatterns = new ArrayList<>();
+    private final Set<String> allowedMethods = new HashSet<>();
+    private final Set<String> allowedHeaders = new HashSet<>();
+    private final boolean allowAnyHeader;
+    private final boolean allowCredentials;
+
+    private final String allowMethodsValue;
+    private final String allowHeadersValue;
+    private final String maxAgeValue;
+
+    public CorsPreflightFilter(CorsConfiguration configuration) {
+        if (configuration.getAllowedOrigins() != null) {
+            for (String origin : configuration.getAllowedOrigins()) {
+                if (CorsConfiguration.ALL.equals(origin)) {
+                    originPatterns.add(compileOriginPattern(origin));
+                } else {
+                    exactOrigins.add(trimTrailingSlash(origin).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        // Always compiled, a pattern may have a port list and no wildcard
+        if (configuration.getAllowedOriginPatterns() != null) {
+            configuration.getAllowedOriginPatterns().forEach(origin -> originPatterns.add(compileOriginPattern(origin)));
+        }
+
+        List<String> methods = configuration.getAllowedMethods() != null ? configuration.getAllowedMethods() : List.of();
+        methods.forEach(method -> allowedMethods.add(method.toUpperCase(Locale.ROOT)));
+
+        List<String> headers = configuration.getAllowedHeaders() != null ? configuration.getAllowedHeaders() : List.of();
+        allowAnyHeader = headers.contains(CorsConfiguration.ALL);
+        headers.forEach(header -> allowedHeaders.add(header.toLowerCase(Locale.ROOT)));
+
+        allowCredentials = Boolean.TRUE.equals(configuration.getAllowCredentials());
+        allowMethodsValue = String.join(", ", methods);
+        allowHeadersValue = String.join(", ", headers);
+        maxAgeValue = configuration.getMaxAge() != null ? String.valueOf(configuration.getMaxAge()) : null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (!isPreflight(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ORIGIN);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS);
+
+        String origin = request.getHeader(HttpHeaders.ORIGIN);
+        String requestMethod = request.getHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD);
+        String requestHeaders = request.getHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS);
+
+        if (!isOriginAllowed(origin)
+                || !allowedMethods.contains(requestMethod.toUpperCase(Locale.ROOT))
+                || !areHeadersAllowed(requestHeaders)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            response.getWriter().write("Invalid CORS request");
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, origin);
+        response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, allowMethodsValue);
+        if (requestHeaders != null && !requestHeaders.isBlank()) {
+            response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, allowAnyHeader ? requestHeaders : allowHeadersValue);
+        }
+        if (allowCredentials) {
+            response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+        }
+        if (maxAgeValue != null) {
+            response.setHeader(HttpHeaders.ACCESS_CONTROL_MAX_AGE, maxAgeValue);
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+    }
+
+    private boolean isPreflight(HttpServletRequest request) {
+        return "OPTIONS".equals(request.getMethod())
+                && request.getHeader(HttpHeaders.ORIGIN) != null
+                && request.getHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD) != null;
+    }
+
+    private boolean isOriginAllowed(String origin) {
+        String normalized = trimTrailingSlash(origin).toLowerCase(Locale.ROOT);
+        if (exactOrigins.contains(normalized)) {
+            return true;
+        }
+        for (Pattern pattern : originPatterns) {
+            if (pattern.matcher(normalized).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean areHeadersAllowed(String requestHeaders) {
+        if (allowAnyHeader || requestHeaders == null || requestHeaders.isBlank()) {
+            return true;
+        }
+        for (String header : requestHeaders.split(",")) {
+            String name = header.trim().toLowerCase(Locale.ROOT);
+            if (!name.isEmpty() && !allowedHeaders.contains(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Pattern compileOriginPattern(String origin) {
+        String normalized = trimTrailingSlash(origin).toLowerCase(Locale.ROOT);
+        if (CorsConfiguration.ALL.equals(normalized)) {
+            return Pattern.compile(".*");
+        }
+
+        // Same port syntax as CorsConfiguration: "[*]" for any port, "[8080,8081]" for a list
+        String portRegex = "";
+        if (normalized.endsWith("]")) {
+            int portStart = normalized.lastIndexOf(":[");
+            String ports = normalized.substring(portStart + 2, normalized.length() - 1);
+            normalized = normalized.substring(0, portStart);
+            portRegex = "*".equals(ports) ? "(:\\d+)?" : ":(" + String.join("|", ports.split("\\s*,\\s*")) + ")";
+        }
+
+        StringBuilder regex = new StringBuilder();
+        String[] parts = normalized.split("\\*", -1);
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                regex.append(".*");
+            }
+            if (!parts[i].isEmpty()) {
+                regex.append(Pattern.quote(parts[i]));
+            }
+        }
+        return Pattern.compile(regex + portRegex);
+    }
+
+    private static String trimTrailingSlash(String origin) {
+        return origin.endsWith("/") ? origin.substring(0, origin.length() - 1) : origin;
+    }
+}
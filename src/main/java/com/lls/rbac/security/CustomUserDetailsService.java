@@ -1,29 +1,96 @@
 package com.lls.rbac.security;
 
+import com.lls.rbac.datasource.ReadYourWritesTracker;
+import com.lls.rbac.directory.DirectoryEntry;
+import com.lls.rbac.directory.UserDirectory;
+import com.lls.rbac.entity.User;
 import com.lls.rbac.repository.UserRepository;
+import com.lls.rbac.util.SingleFlight;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     
     private static final Logger log = LoggerFactory.getLogger(CustomUserDetailsService.class);
     
     private final UserRepository userRepository;
+    private final RoleHierarchyIndex roleHierarchyIndex;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final UserDirectory userDirectory;
+
+    // A burst of requests for one user (a busy service account, or everyone right after a deploy) runs one query
+    private final SingleFlight<String, User> lookups;
     
     @Autowired
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserRepository userRepository, RoleHierarchyIndex roleHierarchyIndex,
+                                    ReadYourWritesTracker readYourWritesTracker, UserDirectory userDirectory,
+                                    @Value("${rbac.security.user-lookup.timeout-ms:5000}") long lookupTimeoutMs) {
         this.userRepository = userRepository;
+        this.roleHierarchyIndex = roleHierarchyIndex;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.userDirectory = userDirectory;
+        this.lookups = new SingleFlight<>(Duration.ofMillis(lookupTimeoutMs));
     }
     
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsernameWithRolesAndPermissions(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        try {
+            return lookups.load(username, () -> load(username));
+        } catch (SingleFlight.TimeoutException e) {
+            throw new AuthenticationServiceException("User lookup timed out for " + username, e);
+        }
+    }
+
+    // For token-authenticated requests, which never check the password
+    public AuthenticatedUser loadPrincipal(String username) {
+        return AuthenticatedUser.from((User) loadUserByUsername(username));
+    }
+
+    private User load(String username) {
+        DirectoryEntry entry = userDirectory.find(username);
+        User user = entry != null ? entry.toUser() : find(username);
+        user.setResolvedAuthorities(roleHierarchyIndex.authoritiesFor(user.getRoles()));
+        return user;
+    }
+
+    private User find(String username) {
+        // Login runs before there is a principal, so name the user whose recent writes the read must see
+        Optional<User> user = readYourWritesTracker.withSubject(username, () -> userRepository.findForAuthenticationByUsername(username));
+        // Only registrations made on this node are known to the tracker; one made on another node may not
+        // have reached the replica yet
+        if (user.isEmpty() && readYourWritesTracker.replicasInUse()) {
+            user = readYourWritesTracker.onPrimary(() -> userRepository.findForAuthenticationByUsername(username));
+        }
+        return user.orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+    }
+    
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        try {
+            userRepository.updatePassword(user.getUsername(), newPassword, LocalDateTime.now());
+        } catch (DataAccessException e) {
+            // The upgrade is opportunistic and is retried on the next login; a login served from the directory must not fail here
+            log.warn("Could not upgrade password hash for {}: {}", user.getUsername(), e.getMessage());
+            return user;
+        }
+        if (user instanceof User entity) {
+            entity.setPassword(newPassword);
+        }
+        log.debug("Upgraded password hash for {}", user.getUsername());
+        return user;
     }
 }
@@ -0,0 +1,206 @@
+package com.lls.rbac.security;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tracks failed logins per username in memory and locks accounts that exceed the limit within a sliding window.
+// Lock transitions are queued and written to the users table in batches instead of one UPDATE per attempt.
+@Service
+public class LoginAttemptService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginAttemptService.class);
+
+    private static final int STRIPES = 64;
+    private static final int BUCKETS = 16;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxAttempts;
+    private final long bucketMillis;
+    private final long lockDurationMillis;
+
+    private final Object[] stripes = new Object[STRIPES];
+    private final Map<String, AttemptWindow> attempts = new ConcurrentHashMap<>();
+    private final Map<String, Long> lockedUntil = new ConcurrentHashMap<>();
+    private final Map<String, LockTransition> pendingTransitions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LoginAttemptService(JdbcTemplate jdbcTemplate,
+                               @Value("${rbac.security.lockout.max-attempts:5}") int maxAttempts,
+                               @Value("${rbac.security.lockout.window-seconds:900}") long windowSeconds,
+                               @Value("${rbac.security.lockout.lock-duration-seconds:900}") long lockDurationSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxAttempts = maxAttempts;
+        this.bucketMillis = Math.max(1, windowSeconds * 1000 / BUCKETS);
+        this.lockDurationMillis = lockDurationSeconds * 1000;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    public boolean isLocked(String username) {
+        Long until = lockedUntil.get(username);
+        if (until == null) {
+            return false;
+        }
+        if (until > System.currentTimeMillis()) {
+            return true;
+        }
+        if (lockedUntil.remove(username, until)) {
+            pendingTransitions.put(username, new LockTransition(username, false, 0L));
+        }
+        return false;
+    }
+
+    public void recordFailure(String username) {
+        if (username == null || username.isBlank()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long bucket = now / bucketMillis;
+        boolean lock;
+        synchronized (stripeFor(username)) {
+            AttemptWindow window = attempts.computeIfAbsent(username, u -> new AttemptWindow());
+            lock = window.increment(bucket) >= maxAttempts;
+            if (lock) {
+                attempts.remove(username);
+            }
+        }
+
+        if (lock) {
+            long until = now + lockDurationMillis;
+            lockedUntil.put(username, until);
+            pendingTransitions.put(username, new LockTransition(username, true, until));
+            log.warn("Account {} locked after {} failed login attempts", username, maxAttempts);
+        }
+    }
+
+    public void recordSuccess(String username) {
+        if (username == null) {
+            return;
+        }
+        synchronized (stripeFor(username)) {
+            attempts.remove(username);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rbac.security.lockout.flush-interval-ms:5000}")
+    public void flush() {
+        if (pendingTransitions.isEmpty()) {
+            return;
+        }
+
+        List<LockTransition> batch = new ArrayList<>();
+        for (String username : pendingTransitions.keySet()) {
+            LockTransition transition = pendingTransitions.remove(username);
+            if (transition != null) {
+                batch.add(transition);
+            }
+        }
+
+        try {
+            List<LockTransition> locks = batch.stream().filter(LockTransition::locked).toList();
+            List<String> unlocks = batch.stream().filter(transition -> !transition.locked()).map(LockTransition::username).toList();
+            // updated_at moves with the flag so the user directory picks it up. An account locked by an
+            // administrator keeps its lock without an expiry, so it still ends sessions.
+            if (!locks.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE users SET is_account_non_locked = FALSE, lock_expires_at = ?, updated_at = ? "
+                                + "WHERE username = ? AND (is_account_non_locked = TRUE OR lock_expires_at IS NOT NULL)",
+                        locks, locks.size(), (ps, transition) -> {
+                            ps.setTimestamp(1, Timestamp.valueOf(toLocalDateTime(transition.until())));
+                            ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                            ps.setString(3, transition.username());
+                        });
+            }
+            if (!unlocks.isEmpty()) {
+                // Only clears temporary locks, an account locked by an administrator has no expiry and stays locked
+                jdbcTemplate.batchUpdate("UPDATE users SET is_account_non_locked = TRUE, lock_expires_at = NULL, updated_at = ? WHERE username = ? AND lock_expires_at IS NOT NULL",
+                        unlocks, unlocks.size(), (ps, username) -> {
+                            ps.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                            ps.setString(2, username);
+                        });
+            }
+            log.debug("Flushed {} account lock transitions", batch.size());
+        } catch (Exception e) {
+            // Put them back unless a newer transition for the same user arrived meanwhile
+            batch.forEach(transition -> pendingTransitions.putIfAbsent(transition.username(), transition));
+            log.error("Failed to flush account lock transitions: {}", e.getMessage());
+        }
+    }
+
+    // Drops windows that have seen no failures for a full window, so sprayed usernames don't accumulate
+    @Scheduled(fixedDelayString = "${rbac.security.lockout.cleanup-interval-ms:60000}")
+    public void evictIdle() {
+        long oldestLiveBucket = System.currentTimeMillis() / bucketMillis - BUCKETS + 1;
+        attempts.forEach((username, window) -> {
+            synchronized (stripeFor(username)) {
+                if (window.latestBucket() < oldestLiveBucket) {
+                    attempts.remove(username, window);
+                }
+            }
+        });
+        long now = System.currentTimeMillis();
+        lockedUntil.entrySet().removeIf(entry -> entry.getValue() <= now);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private Object stripeFor(String username) {
+        return stripes[(username.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private record LockTransition(String username, boolean locked, long until) {}
+
+    // Ring of per-bucket counters covering one window; guarded by the username's stripe lock
+    private static final class AttemptWindow {
+        private final long[] bucketIds = new long[BUCKETS];
+        private final int[] counts = new int[BUCKETS];
+
+        int increment(long bucket) {
+            int slot = (int) (bucket % BUCKETS);
+            if (bucketIds[slot] != bucket) {
+                bucketIds[slot] = bucket;
+                counts[slot] = 0;
+            }
+            counts[slot]++;
+
+            int total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                if (bucket - bucketIds[i] < BUCKETS) {
+                    total += counts[i];
+                }
+            }
+            return total;
+        }
+
+        long latestBucket() {
+            long latest = 0;
+            for (long id : bucketIds) {
+                latest = Math.max(latest, id);
+            }
+            return latest;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.lls.rbac.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+// Picks the BCrypt work factor for this hardware: the highest strength whose verification still fits
+// both the target latency and the per-core hashing budget, never going below the configured floor.
+@Component
+public class PasswordHashingCalibrator {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingCalibrator.class);
+
+    private static final int SAMPLES = 3;
+    private static final String PROBE_PASSWORD = "calibration-probe-password";
+
+    private final int fixedStrength;
+    private final long targetLatencyMillis;
+    private final int maxHashesPerSecondPerCore;
+    private final int minStrength;
+    private final int maxStrength;
+
+    public PasswordHashingCalibrator(@Value("${rbac.password.bcrypt-strength:0}") int fixedStrength,
+                                     @Value("${rbac.password.target-latency-ms:100}") long targetLatencyMillis,
+                                     @Value("${rbac.password.max-hashes-per-second-per-core:10}") int maxHashesPerSecondPerCore,
+                                     @Value("${rbac.password.min-strength:10}") int minStrength,
+                                     @Value("${rbac.password.max-strength:16}") int maxStrength) {
+        this.fixedStrength = fixedStrength;
+        this.targetLatencyMillis = targetLatencyMillis;
+        this.maxHashesPerSecondPerCore = maxHashesPerSecondPerCore;
+        this.minStrength = minStrength;
+        this.maxStrength = maxStrength;
+    }
+
+    public int bcryptStrength() {
+        if (fixedStrength > 0) {
+            log.info("Using configured BCrypt strength {}", fixedStrength);
+            return fixedStrength;
+        }
+
+        double budgetMillis = targetLatencyMillis;
+        if (maxHashesPerSecondPerCore > 0) {
+            budgetMillis = Math.min(budgetMillis, 1000.0 / maxHashesPerSecondPerCore);
+        }
+
+        // One cheap round first so the measurements don't include JIT compilation
+        measure(4);
+
+        int strength = minStrength;
+        double millis = measure(strength);
+        while (strength < maxStrength) {
+            // Every extra round doubles the cost, so predict before paying for the next measurement
+            if (millis * 2 > budgetMillis) {
+                break;
+            }
+            strength++;
+            millis = measure(strength);
+        }
+
+        log.info("Calibrated BCrypt strength {} (~{} ms per verification, budget {} ms)",
+                strength, Math.round(millis), Math.round(budgetMillis));
+        return strength;
+    }
+
+    // Median verification time in milliseconds; overridable so tests can supply a cost model
+    double measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        String hash = encoder.encode(PROBE_PASSWORD);
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.matches(PROBE_PASSWORD, hash);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,115 @@
+package com.lls.rbac.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class PublicRouteRegistry {
+
+    // Single source of truth for routes that skip authentication entirely.
+    // "/prefix/**" matches the prefix and everything below it, anything else is an exact path.
+    private static final List<String> PUBLIC_ROUTES = List.of(
+            "/api/auth/**",
+            "/api/public/**",
+            "/.well-known/jwks.json",
+            "/api/health/liveness",
+            "/api/health/readiness",
+            "/swagger-ui/**",
+            "/api-docs/**",
+            "/swagger-ui.html"
+    );
+
+    // Exact paths under a public prefix that still require an authenticated caller
+    private static final List<String> PROTECTED_ROUTES = List.of(
+            "/api/auth/introspect"
+    );
+
+    private final Node root = new Node();
+
+    public PublicRouteRegistry() {
+        PUBLIC_ROUTES.forEach(this::compile);
+        PROTECTED_ROUTES.forEach(route -> node(route).excluded = true);
+    }
+
+    public String[] patterns() {
+        return PUBLIC_ROUTES.toArray(new String[0]);
+    }
+
+    // Must be matched before patterns(), which would otherwise cover them
+    public String[] protectedPatterns() {
+        return PROTECTED_ROUTES.toArray(new String[0]);
+    }
+
+    public boolean isPublic(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (contextPath != null && !contextPath.isEmpty() && path.startsWith(contextPath)) {
+            path = path.substring(contextPath.length());
+        }
+        return isPublic(path);
+    }
+
+    // Walks the trie one path segment at a time, so the cost depends on the path depth
+    // and not on the number of registered routes.
+    public boolean isPublic(String path) {
+        if (path == null || path.isEmpty() || path.charAt(0) != '/') {
+            return false;
+        }
+
+        Node node = root;
+        int start = 1;
+        int length = path.length();
+        boolean underPrefix = false;
+        while (true) {
+            underPrefix |= node.prefix;
+            if (start >= length) {
+                return !node.excluded && (underPrefix || node.exact);
+            }
+
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            node = node.children.get(path.substring(start, end));
+            if (node == null) {
+                return underPrefix;
+            }
+            start = end + 1;
+        }
+    }
+
+    private void compile(String pattern) {
+        boolean prefix = pattern.endsWith("/**");
+        Node node = node(prefix ? pattern.substring(0, pattern.length() - 3) : pattern);
+        if (prefix) {
+            node.prefix = true;
+        } else {
+            node.exact = true;
+        }
+    }
+
+    private Node node(String path) {
+        Node node = root;
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (segment.contains("*")) {
+                throw new IllegalArgumentException("Unsupported route pattern: " + path);
+            }
+            node = node.children.computeIfAbsent(segment, s -> new Node());
+        }
+        return node;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private boolean prefix;
+        private boolean exact;
+        private boolean excluded;
+    }
+}
@@ -0,0 +1,249 @@
+package com.lls.rbac.security;
+
+import com.lls.rbac.entity.Permission;
+import com.lls.rbac.entity.Role;
+import com.lls.rbac.repository.RoleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+// Precomputes the transitive closure of the role hierarchy (a role inherits everything granted to the roles
+// below it) into bitsets, together with the resulting authority set of every role. Resolving a user's
+// authorities is then a lookup keyed by the user's direct roles instead of a walk over the hierarchy.
+// Changes are announced through AuthorizationChangedEvent; a role the snapshot has never seen (created, or
+// seeded behind the application's back, since it was loaded) triggers a re-read as well, at most once per
+// rbac.authz.hierarchy.min-reload-interval-ms.
+@Component
+public class RoleHierarchyIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(RoleHierarchyIndex.class);
+
+    private final RoleRepository roleRepository;
+    private final long minReloadIntervalMs;
+
+    private volatile Snapshot snapshot;
+
+    // Guarded by this
+    private long lastLoadAttempt;
+
+    @Autowired
+    public RoleHierarchyIndex(RoleRepository roleRepository,
+                              @Value("${rbac.authz.hierarchy.min-reload-interval-ms:1000}") long minReloadIntervalMs) {
+        this.roleRepository = roleRepository;
+        this.minReloadIntervalMs = minReloadIntervalMs;
+    }
+
+    public Set<GrantedAuthority> authoritiesFor(Collection<Role> roles) {
+        return resolve(roles, (current, role) -> current.ordinalsById.getOrDefault(role.getId(), -1));
+    }
+
+    public Set<GrantedAuthority> authoritiesForRoleNames(Collection<String> roleNames) {
+        return resolve(roleNames, (current, name) -> current.ordinalsByName.getOrDefault(name, -1));
+    }
+
+    // Loads the hierarchy on first use; an empty one is re-read in case roles have been seeded since
+    public int roleCount() {
+        Snapshot current = current();
+        return (current.names.length == 0 ? refresh(current) : current).names.length;
+    }
+
+    public synchronized void reload() {
+        lastLoadAttempt = System.currentTimeMillis();
+        snapshot = Snapshot.build(roleRepository.findAllWithPermissions());
+        log.info("Role hierarchy loaded for {} roles", snapshot.names.length);
+    }
+
+    // Another node, or this one, changed roles or permissions; which ones is unknown, so start over. Rebuilding
+    // is a single query and a pass over the roles, cheap next to how rarely the hierarchy changes.
+    @EventListener(AuthorizationChangedEvent.class)
+    @Order(0)
+    public void onAuthorizationChanged() {
+        reload();
+    }
+
+    private <T> Set<GrantedAuthority> resolve(Collection<T> roles, BiFunction<Snapshot, T, Integer> ordinalOf) {
+        Snapshot loaded = current();
+        Snapshot current = roles.stream().anyMatch(role -> ordinalOf.apply(loaded, role) < 0) ? refresh(loaded) : loaded;
+        if (roles.size() == 1) {
+            int ordinal = ordinalOf.apply(current, roles.iterator().next());
+            return ordinal < 0 ? Set.of() : current.authorities[ordinal];
+        }
+
+        BitSet key = new BitSet(current.names.length);
+        for (T role : roles) {
+            int ordinal = ordinalOf.apply(current, role);
+            if (ordinal >= 0) {
+                key.set(ordinal);
+            }
+        }
+        return current.combined.computeIfAbsent(key, current::union);
+    }
+
+    // Re-reads the hierarchy unless another thread already did or the last attempt was too recent. A failed
+    // re-read keeps the current snapshot; unknown roles then grant nothing, as before.
+    private synchronized Snapshot refresh(Snapshot seen) {
+        if (snapshot == seen && System.currentTimeMillis() - lastLoadAttempt >= minReloadIntervalMs) {
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                log.warn("Could not reload the role hierarchy: {}", e.getMessage());
+            }
+        }
+        return snapshot;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static final class Snapshot {
+        private final String[] names;
+        private final Map<Long, Integer> ordinalsById;
+        private final Map<String, Integer> ordinalsByName;
+        private final String[] permissionNames;
+        private final Map<String, Integer> permissionOrdinals;
+
+        private final int[] parents;
+        private final BitSet[] directPermissions;
+        private final BitSet[] impliedRoles;
+        private final BitSet[] effectivePermissions;
+        private final Set<GrantedAuthority>[] authorities;
+
+        // Authority sets for users holding several direct roles, keyed by the set of those roles
+        private final Map<BitSet, Set<GrantedAuthority>> combined = new ConcurrentHashMap<>();
+
+        @SuppressWarnings("unchecked")
+        private Snapshot(String[] names, Map<Long, Integer> ordinalsById, String[] permissionNames, int[] parents, BitSet[] directPermissions) {
+            this.names = names;
+            this.ordinalsById = ordinalsById;
+            this.ordinalsByName = new HashMap<>();
+            for (int i = 0; i < names.length; i++) {
+                ordinalsByName.put(names[i], i);
+            }
+            this.permissionNames = permissionNames;
+            this.permissionOrdinals = new HashMap<>();
+            for (int i = 0; i < permissionNames.length; i++) {
+                permissionOrdinals.put(permissionNames[i], i);
+            }
+            this.parents = parents;
+            this.directPermissions = directPermissions;
+            this.impliedRoles = new BitSet[names.length];
+            this.effectivePermissions = new BitSet[names.length];
+            this.authorities = (Set<GrantedAuthority>[]) new Set<?>[names.length];
+        }
+
+        static Snapshot build(List<Role> roles) {
+            String[] names = new String[roles.size()];
+            Map<Long, Integer> ordinalsById = new HashMap<>();
+            List<String> permissionNames = new ArrayList<>();
+            Set<String> seenPermissions = new HashSet<>();
+            for (int i = 0; i < roles.size(); i++) {
+                Role role = roles.get(i);
+                names[i] = role.getName();
+                ordinalsById.put(role.getId(), i);
+                for (Permission permission : role.getPermissions()) {
+                    if (seenPermissions.add(permission.getName())) {
+                        permissionNames.add(permission.getName());
+                    }
+                }
+            }
+
+            int[] parents = new int[roles.size()];
+            BitSet[] directPermissions = new BitSet[roles.size()];
+            Snapshot snapshot = new Snapshot(names, ordinalsById, permissionNames.toArray(new String[0]), parents, directPermissions);
+            for (int i = 0; i < roles.size(); i++) {
+                Role role = roles.get(i);
+                parents[i] = role.getParent() == null ? -1 : ordinalsById.getOrDefault(role.getParent().getId(), -1);
+                directPermissions[i] = snapshot.permissionBits(role.getPermissions());
+            }
+            if (snapshot.hasCycle()) {
+                throw new IllegalStateException("The role hierarchy contains a cycle");
+            }
+
+            snapshot.recompute();
+            return snapshot;
+        }
+
+        BitSet permissionBits(Collection<Permission> permissions) {
+            BitSet bits = new BitSet(permissionNames.length);
+            for (Permission permission : permissions) {
+                bits.set(permissionOrdinals.get(permission.getName()));
+            }
+            return bits;
+        }
+
+        boolean hasCycle() {
+            for (int i = 0; i < names.length; i++) {
+                int steps = 0;
+                for (int r = parents[i]; r >= 0; r = parents[r]) {
+                    if (r == i || ++steps > names.length) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        void recompute() {
+            for (int role = 0; role < names.length; role++) {
+                impliedRoles[role] = new BitSet(names.length);
+                impliedRoles[role].set(role);
+            }
+            // Every role is implied by each of its ancestors
+            for (int i = 0; i < names.length; i++) {
+                for (int r = parents[i]; r >= 0; r = parents[r]) {
+                    impliedRoles[r].set(i);
+                }
+            }
+            for (int role = 0; role < names.length; role++) {
+                BitSet permissions = new BitSet(permissionNames.length);
+                impliedRoles[role].stream().forEach(implied -> permissions.or(directPermissions[implied]));
+                effectivePermissions[role] = permissions;
+                authorities[role] = toAuthorities(impliedRoles[role], permissions);
+            }
+        }
+
+        Set<GrantedAuthority> union(BitSet roles) {
+            BitSet implied = new BitSet(names.length);
+            BitSet permissions = new BitSet(permissionNames.length);
+            roles.stream().forEach(role -> {
+                implied.or(impliedRoles[role]);
+                permissions.or(effectivePermissions[role]);
+            });
+            return toAuthorities(implied, permissions);
+        }
+
+        private Set<GrantedAuthority> toAuthorities(BitSet roles, BitSet permissions) {
+            List<GrantedAuthority> result = new ArrayList<>(roles.cardinality() + permissions.cardinality());
+            roles.stream().forEach(role -> result.add(new SimpleGrantedAuthority("ROLE_" + names[role])));
+            permissions.stream().forEach(permission -> result.add(new SimpleGrantedAuthority(permissionNames[permission])));
+            return Set.copyOf(result);
+        }
+    }
+}
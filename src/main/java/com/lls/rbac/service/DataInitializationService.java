@@ -101,6 +101,12 @@ public class DataInitializationService implements CommandLineRunner {
                 });
         moderatorRole.setPermissions(moderatorPermissions);
         roleRepository.save(moderatorRole);
+
+        // ADMIN > MODERATOR > USER, each role inherits everything granted to the role below it
+        userRole.setParent(moderatorRole);
+        roleRepository.save(userRole);
+        moderatorRole.setParent(adminRole);
+        roleRepository.save(moderatorRole);
     }
 
     private void initializeDefaultUsers() {
@@ -0,0 +1,107 @@
+package com.lls.rbac.service;
+
+import com.lls.rbac.repository.PermissionRepository;
+import com.lls.rbac.repository.RoleRepository;
+import com.lls.rbac.repository.UserRepository;
+import com.lls.rbac.security.AuthorizationVersionService;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+// Assigns and revokes roles and permissions for many principals at once with set-based statements on the
+// join tables. Entities are never loaded, so the cost depends on the size of the request, not of the role.
+@Service
+public class RoleAssignmentService {
+
+    private static final Logger log = LoggerFactory.getLogger(RoleAssignmentService.class);
+
+    public static final int MAX_NAMES = 10000;
+
+    // Keeps IN lists well below database parameter limits
+    private static final int CHUNK_SIZE = 1000;
+
+    private final RoleRepository roleRepository;
+    private final PermissionRepository permissionRepository;
+    private final UserRepository userRepository;
+    private final AuthorizationVersionService authorizationVersionService;
+
+    @Autowired
+    public RoleAssignmentService(RoleRepository roleRepository,
+                                 PermissionRepository permissionRepository,
+                                 UserRepository userRepository,
+                                 AuthorizationVersionService authorizationVersionService) {
+        this.roleRepository = roleRepository;
+        this.permissionRepository = permissionRepository;
+        this.userRepository = userRepository;
+        this.authorizationVersionService = authorizationVersionService;
+    }
+
+    // Returns how many users newly got the role; unknown usernames and existing members are skipped
+    @Transactional
+    public int assignRole(String roleName, Collection<String> usernames) {
+        requireRole(roleName);
+        return apply(usernames, chunk -> touch(chunk, roleRepository.addMembers(roleName, chunk)), "Assigned role {} to {} users", roleName);
+    }
+
+    @Transactional
+    public int revokeRole(String roleName, Collection<String> usernames) {
+        requireRole(roleName);
+        return apply(usernames, chunk -> touch(chunk, roleRepository.removeMembers(roleName, chunk)), "Revoked role {} from {} users", roleName);
+    }
+
+    @Transactional
+    public int grantPermission(String permissionName, Collection<String> roleNames) {
+        requirePermission(permissionName);
+        return apply(roleNames, chunk -> permissionRepository.grantToRoles(permissionName, chunk), "Granted permission {} to {} roles", permissionName);
+    }
+
+    @Transactional
+    public int revokePermission(String permissionName, Collection<String> roleNames) {
+        requirePermission(permissionName);
+        return apply(roleNames, chunk -> permissionRepository.revokeFromRoles(permissionName, chunk), "Revoked permission {} from {} roles", permissionName);
+    }
+
+    private int apply(Collection<String> names, ToIntFunction<List<String>> statement, String message, String target) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(names));
+        int changed = 0;
+        for (int from = 0; from < distinct.size(); from += CHUNK_SIZE) {
+            changed += statement.applyAsInt(distinct.subList(from, Math.min(from + CHUNK_SIZE, distinct.size())));
+        }
+        // These statements bypass Hibernate, so the change has to be announced explicitly
+        if (changed > 0) {
+            authorizationVersionService.bump();
+        }
+        log.info(message, target, changed);
+        return changed;
+    }
+
+    // Membership lives in user_roles; the users' updated_at has to move for the user directory to notice
+    private int touch(List<String> usernames, int changed) {
+        if (changed > 0) {
+            userRepository.touch(usernames, LocalDateTime.now());
+        }
+        return changed;
+    }
+
+    private void requireRole(String roleName) {
+        if (!roleRepository.existsByName(roleName)) {
+            throw new EntityNotFoundException("Role not found: " + roleName);
+        }
+    }
+
+    private void requirePermission(String permissionName) {
+        if (!permissionRepository.existsByName(permissionName)) {
+            throw new EntityNotFoundException("Permission not found: " + permissionName);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.lls.rbac.service;
+
+import com.lls.rbac.dto.KeysetPageDTO;
+import com.lls.rbac.repository.PermissionRepository;
+import com.lls.rbac.repository.RoleRepository;
+import com.lls.rbac.repository.projection.RoleMemberView;
+import com.lls.rbac.repository.projection.RoleSummaryView;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+// Pages through role members and permission holders by id as lightweight projections; no entity or
+// collection is loaded, so a page costs the same on a role with ten members as on one with a million.
+@Service
+@Transactional(readOnly = true)
+public class RoleMembershipService {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // Members beyond this are not counted unless an exact count is asked for
+    public static final int ESTIMATE_CAP = 10000;
+
+    public enum CountMode { EXACT, ESTIMATE, NONE }
+
+    private final RoleRepository roleRepository;
+    private final PermissionRepository permissionRepository;
+
+    @Autowired
+    public RoleMembershipService(RoleRepository roleRepository, PermissionRepository permissionRepository) {
+        this.roleRepository = roleRepository;
+        this.permissionRepository = permissionRepository;
+    }
+
+    public KeysetPageDTO<RoleMemberView> members(String roleName, long after, int size, CountMode countMode) {
+        if (!roleRepository.existsByName(roleName)) {
+            throw new EntityNotFoundException("Role not found: " + roleName);
+        }
+        List<RoleMemberView> items = roleRepository.findMembers(roleName, after, Limit.of(clamp(size)));
+        return page(items, clamp(size), RoleMemberView::getId, countMode,
+                () -> roleRepository.countMembers(roleName),
+                () -> roleRepository.countMembersUpTo(roleName, ESTIMATE_CAP + 1));
+    }
+
+    public KeysetPageDTO<RoleSummaryView> rolesWithPermission(String permissionName, long after, int size, CountMode countMode) {
+        if (!permissionRepository.existsByName(permissionName)) {
+            throw new EntityNotFoundException("Permission not found: " + permissionName);
+        }
+        List<RoleSummaryView> items = roleRepository.findRolesWithPermission(permissionName, after, Limit.of(clamp(size)));
+        // Roles are few, an exact count is always cheap
+        return page(items, clamp(size), RoleSummaryView::getId, countMode == CountMode.NONE ? CountMode.NONE : CountMode.EXACT,
+                () -> roleRepository.countRolesWithPermission(permissionName), null);
+    }
+
+    private static <T> KeysetPageDTO<T> page(List<T> items, int size, ToLongFunction<T> idOf, CountMode countMode,
+                                             CountQuery exact, CountQuery capped) {
+        Long nextAfter = items.size() < size ? null : idOf.applyAsLong(items.get(items.size() - 1));
+        Long total = null;
+        boolean lowerBound = false;
+        if (countMode == CountMode.EXACT) {
+            total = exact.count();
+        } else if (countMode == CountMode.ESTIMATE) {
+            long counted = capped.count();
+            lowerBound = counted > ESTIMATE_CAP;
+            total = Math.min(counted, ESTIMATE_CAP);
+        }
+        return new KeysetPageDTO<>(items, nextAfter, total, lowerBound);
+    }
+
+    private static int clamp(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    @FunctionalInterface
+    private interface CountQuery {
+        long count();
+    }
+}
@@ -0,0 +1,79 @@
+package com.lls.rbac.service;
+
+import com.lls.rbac.entity.User;
+import com.lls.rbac.jwt.JwtUtil;
+import com.lls.rbac.repository.UserRepository;
+import com.lls.rbac.security.RoleHierarchyIndex;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class TokenIntrospectionService {
+
+    public static final int MAX_BATCH_SIZE = 100;
+
+    private final JwtUtil jwtUtil;
+    private final UserRepository userRepository;
+    private final RoleHierarchyIndex roleHierarchyIndex;
+
+    @Autowired
+    public TokenIntrospectionService(JwtUtil jwtUtil, UserRepository userRepository, RoleHierarchyIndex roleHierarchyIndex) {
+        this.jwtUtil = jwtUtil;
+        this.userRepository = userRepository;
+        this.roleHierarchyIndex = roleHierarchyIndex;
+    }
+
+    public List<Map<String, Object>> introspect(List<String> tokens) {
+        // Signature checks are CPU bound and independent, so verify the batch in parallel
+        List<Claims> claims = tokens.parallelStream()
+                .map(token -> token == null || token.isBlank() ? null : jwtUtil.parseClaims(token))
+                .toList();
+
+        // One set-based query resolves every distinct subject in the batch
+        Set<String> usernames = claims.stream()
+                .filter(Objects::nonNull)
+                .map(Claims::getSubject)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, User> users = usernames.isEmpty()
+                ? Map.of()
+                : userRepository.findForAuthenticationByUsernameIn(usernames).stream()
+                        .collect(Collectors.toMap(User::getUsername, Function.identity()));
+
+        List<Map<String, Object>> results = new ArrayList<>(tokens.size());
+        for (Claims claim : claims) {
+            results.add(describe(claim, claim == null ? null : users.get(claim.getSubject())));
+        }
+        return results;
+    }
+
+    private Map<String, Object> describe(Claims claims, User user) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        boolean active = claims != null && user != null
+                && user.isEnabled() && !user.isSessionLocked()
+                && user.isAccountNonExpired() && user.isCredentialsNonExpired();
+        result.put("active", active);
+        if (claims == null) {
+            return result;
+        }
+
+        result.put("sub", claims.getSubject());
+        result.put("iat", claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() / 1000 : null);
+        result.put("exp", claims.getExpiration() != null ? claims.getExpiration().getTime() / 1000 : null);
+        result.put("authorities", active
+                ? roleHierarchyIndex.authoritiesFor(user.getRoles()).stream().map(GrantedAuthority::getAuthority).sorted().toList()
+                : List.of());
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+package com.lls.rbac.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Coalesces last-login and last-seen timestamps per user in memory and writes them out as one batched UPDATE.
+// However many requests a user makes, each flush touches their row at most once.
+@Service
+public class UserActivityTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(UserActivityTracker.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, Activity> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UserActivityTracker(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void recordLogin(Long userId) {
+        if (userId != null) {
+            long now = System.currentTimeMillis();
+            pending.merge(userId, new Activity(now, now), Activity::latest);
+        }
+    }
+
+    public void recordSeen(Long userId) {
+        if (userId != null) {
+            pending.merge(userId, new Activity(0L, System.currentTimeMillis()), Activity::latest);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rbac.activity.flush-interval-ms:30000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<Long, Activity>> batch = new ArrayList<>();
+        for (Long userId : pending.keySet()) {
+            Activity activity = pending.remove(userId);
+            if (activity != null) {
+                batch.add(Map.entry(userId, activity));
+            }
+        }
+
+        try {
+            // Plain SQL on purpose: going through the entity would bump updated_at on every flush
+            jdbcTemplate.batchUpdate("UPDATE users SET last_seen_at = ?, last_login_at = COALESCE(?, last_login_at) WHERE id = ?",
+                    batch, batch.size(), (ps, entry) -> {
+                        Activity activity = entry.getValue();
+                        ps.setTimestamp(1, toTimestamp(activity.lastSeen()));
+                        ps.setTimestamp(2, activity.lastLogin() == 0L ? null : toTimestamp(activity.lastLogin()));
+                        ps.setLong(3, entry.getKey());
+                    });
+            log.debug("Flushed activity for {} users", batch.size());
+        } catch (Exception e) {
+            batch.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), Activity::latest));
+            log.error("Failed to flush user activity: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static Timestamp toTimestamp(long epochMillis) {
+        return Timestamp.valueOf(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()));
+    }
+
+    private record Activity(long lastLogin, long lastSeen) {
+
+        static Activity latest(Activity a, Activity b) {
+            return new Activity(Math.max(a.lastLogin, b.lastLogin), Math.max(a.lastSeen, b.lastSeen));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.lls.rbac.service;
+
+import com.lls.rbac.repository.UserRepository;
+import com.lls.rbac.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Answers username/email availability from Bloom filters of existing values.
+// A negative answer from the filter is definite; only a possible hit costs a database query.
+// Users registered on other nodes are picked up by polling updated_at, which every insert sets.
+@Service
+public class UserAvailabilityService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserAvailabilityService.class);
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final double falsePositiveProbability;
+    private final Duration overlap;
+
+    // Null until the first build finishes; every lookup falls through to the database until then
+    private volatile Filters filters;
+
+    // Collects registrations made while a rebuild is scanning the table, so the new filters don't miss them
+    private volatile Queue<String[]> buildBuffer;
+
+    // Guarded by this
+    private LocalDateTime watermark;
+
+    @Autowired
+    public UserAvailabilityService(UserRepository userRepository,
+                                   JdbcTemplate jdbcTemplate,
+                                   @Value("${rbac.availability.false-positive-probability:0.01}") double falsePositiveProbability,
+                                   @Value("${rbac.availability.overlap-ms:5000}") long overlapMs) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.overlap = Duration.ofMillis(overlapMs);
+    }
+
+    public boolean isUsernameAvailable(String username) {
+        Filters current = filters;
+        if (current != null && !current.usernames.mightContain(normalize(username))) {
+            return true;
+        }
+        return !userRepository.existsByUsername(username);
+    }
+
+    public boolean isEmailAvailable(String email) {
+        Filters current = filters;
+        if (current != null && !current.emails.mightContain(normalize(email))) {
+            return true;
+        }
+        return !userRepository.existsByEmail(email);
+    }
+
+    public void recordRegistration(String username, String email) {
+        Queue<String[]> buffer = buildBuffer;
+        if (buffer != null) {
+            buffer.add(new String[]{username, email});
+        }
+        Filters current = filters;
+        if (current != null) {
+            current.add(username, email);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void build() {
+        Queue<String[]> buffer = new ConcurrentLinkedQueue<>();
+        buildBuffer = buffer;
+        // Rows written while the scan runs are picked up again by the next poll
+        LocalDateTime since = LocalDateTime.now();
+        try {
+            long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+            Filters rebuilt = new Filters(Math.max(1024, existing * 2), falsePositiveProbability);
+
+            // Streams the table instead of loading entities, the filters only ever see the two key columns
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement("SELECT username, email FROM users");
+                statement.setFetchSize(1000);
+                return statement;
+            }, rs -> {
+                rebuilt.add(rs.getString(1), rs.getString(2));
+            });
+
+            filters = rebuilt;
+            watermark = since;
+            buffer.forEach(entry -> rebuilt.add(entry[0], entry[1]));
+            log.info("Availability filters built for {} users", rebuilt.count.get());
+        } catch (Exception e) {
+            log.error("Failed to build availability filters: {}", e.getMessage());
+        } finally {
+            buildBuffer = null;
+        }
+    }
+
+    // Re-reads the overlap window on every poll, for transactions that committed late and clock skew between
+    // nodes; values the filters already hold are not counted again
+    @Scheduled(fixedDelayString = "${rbac.availability.poll-interval-ms:5000}")
+    public synchronized void applyRegistrations() {
+        Filters current = filters;
+        if (current == null) {
+            return;
+        }
+        LocalDateTime since = watermark.minus(overlap);
+        try {
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement("SELECT username, email, updated_at FROM users WHERE updated_at > ?");
+                statement.setTimestamp(1, Timestamp.valueOf(since));
+                statement.setFetchSize(1000);
+                return statement;
+            }, rs -> {
+                current.addIfAbsent(rs.getString(1), rs.getString(2));
+                LocalDateTime updatedAt = rs.getTimestamp(3).toLocalDateTime();
+                if (updatedAt.isAfter(watermark)) {
+                    watermark = updatedAt;
+                }
+            });
+        } catch (Exception e) {
+            // The next poll reads the same window again
+            log.warn("Failed to poll registrations for the availability filters: {}", e.getMessage());
+        }
+    }
+
+    // Rebuilds with a larger capacity once inserts push the false-positive rate past its target
+    @Scheduled(fixedDelayString = "${rbac.availability.saturation-check-interval-ms:600000}")
+    public void rebuildIfSaturated() {
+        Filters current = filters;
+        if (current != null && current.count.get() > current.usernames.getExpectedInsertions()) {
+            build();
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Filters {
+        private final BloomFilter usernames;
+        private final BloomFilter emails;
+        private final AtomicLong count = new AtomicLong();
+
+        private Filters(long expectedInsertions, double falsePositiveProbability) {
+            this.usernames = new BloomFilter(expectedInsertions, falsePositiveProbability);
+            this.emails = new BloomFilter(expectedInsertions, falsePositiveProbability);
+        }
+
+        private void add(String username, String email) {
+            usernames.add(normalize(username));
+            emails.add(normalize(email));
+            count.incrementAndGet();
+        }
+
+        private void addIfAbsent(String username, String email) {
+            if (!usernames.mightContain(normalize(username)) || !emails.mightContain(normalize(email))) {
+                add(username, email);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.lls.rbac.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void eventsFromManyThreadsAreWrittenOnceEachAndReadBackInOrder() throws Exception {
+        AuditLog auditLog = new AuditLog(true, directory.toString(), AuditSegmentWriter.MAX_RECORD_BYTES, 1024, 50, 1000);
+        auditLog.start();
+
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            String user = "user-" + t;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    auditLog.record(AuditEvent.Type.LOGIN_SUCCESS, user, "127.0.0.1", Integer.toString(i));
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        auditLog.stop();
+
+        assertEquals(0, auditLog.droppedEvents());
+        assertEquals(2000, auditLog.writtenEvents());
+        try (Stream<Path> segments = Files.list(directory)) {
+            assertTrue(segments.count() > 1, "small segments should have rotated");
+        }
+
+        List<String> user2 = new ArrayList<>();
+        new AuditLogReader(directory).user("user-2").read(user2::add);
+        assertEquals(500, user2.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(Integer.toString(i), AuditLogReader.field(user2.get(i), "detail"));
+        }
+    }
+
+    @Test
+    void readerFiltersAndSkipsTheUnwrittenTailOfAnOpenSegment() throws Exception {
+        long now = System.currentTimeMillis();
+        try (AuditSegmentWriter writer = new AuditSegmentWriter(directory, 1 << 16)) {
+            writer.append(new AuditEvent(now - 60_000, AuditEvent.Type.LOGIN_FAILURE, "alice", "10.0.0.1", "bad \"credentials\"\n"));
+            writer.append(new AuditEvent(now, AuditEvent.Type.ACCESS_DENIED, "alice", "10.0.0.1", "GET /api/admin/users"));
+            writer.append(new AuditEvent(now, AuditEvent.Type.LOGOUT, null, "10.0.0.2", null));
+            writer.force();
+
+            // Still open, so the file carries its zero-filled tail
+            assertEquals(1 << 16, Files.size(writer.currentSegment()));
+
+            List<String> all = new ArrayList<>();
+            new AuditLogReader(directory).read(all::add);
+            assertEquals(3, all.size());
+            assertEquals("bad \"credentials\"\n", AuditLogReader.field(all.get(0), "detail"));
+            assertEquals(null, AuditLogReader.field(all.get(2), "user"));
+
+            List<String> recentDenials = new ArrayList<>();
+            new AuditLogReader(directory).type("ACCESS_DENIED").from(Instant.ofEpochMilli(now - 1000)).read(recentDenials::add);
+            assertEquals(1, recentDenials.size());
+            assertEquals("GET /api/admin/users", AuditLogReader.field(recentDenials.get(0), "detail"));
+        }
+    }
+
+    // Smaller segments could not take the largest record, and the writer would fail on it
+    @Test
+    void rejectsSegmentsSmallerThanTheLargestRecord() throws Exception {
+        assertThrows(IllegalArgumentException.class,
+                () -> new AuditLog(true, directory.toString(), AuditSegmentWriter.MAX_RECORD_BYTES - 1, 16, 50, 0));
+
+        String detail = "\u0001".repeat(10_000);
+        try (AuditSegmentWriter writer = new AuditSegmentWriter(directory, AuditSegmentWriter.MAX_RECORD_BYTES)) {
+            writer.append(new AuditEvent(Long.MAX_VALUE / 1000, AuditEvent.Type.ACCESS_DENIED, detail, detail, detail));
+            writer.append(new AuditEvent(Long.MAX_VALUE / 1000, AuditEvent.Type.ACCESS_DENIED, detail, detail, detail));
+        }
+    }
+
+    @Test
+    void ringBufferRejectsOffersWhenFull() {
+        AuditRingBuffer buffer = new AuditRingBuffer(4);
+        AuditEvent event = new AuditEvent(0, AuditEvent.Type.LOGOUT, null, null, null);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(event));
+        }
+        assertFalse(buffer.offer(event));
+        assertEquals(event, buffer.poll());
+        assertTrue(buffer.offer(event));
+        assertEquals(4, buffer.size());
+    }
+
+    @Test
+    void slowWriterCausesDropsInsteadOfStallingCallers() throws Exception {
+        AuditLog auditLog = new AuditLog(true, directory.toString(), 1 << 20, 2, 1000, 0);
+        auditLog.start();
+        long started = System.nanoTime();
+        for (int i = 0; i < 100_000; i++) {
+            auditLog.record(AuditEvent.Type.LOGIN_FAILURE, "mallory", null, null);
+        }
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).toSeconds() < 5);
+        auditLog.stop();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> auditLog.pendingEvents() == 0);
+        assertEquals(100_000, auditLog.droppedEvents() + auditLog.writtenEvents());
+        assertTrue(auditLog.droppedEvents() > 0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.lls.rbac.controller;
+
+import com.lls.rbac.audit.AuditLog;
+import com.lls.rbac.datasource.ReadYourWritesTracker;
+import com.lls.rbac.dto.RegisterRequestDTO;
+import com.lls.rbac.entity.User;
+import com.lls.rbac.jwt.JwtUtil;
+import com.lls.rbac.repository.UserRepository;
+import com.lls.rbac.security.CustomUserDetailsService;
+import com.lls.rbac.security.LoginAttemptService;
+import com.lls.rbac.service.TokenIntrospectionService;
+import com.lls.rbac.service.UserActivityTracker;
+import com.lls.rbac.service.UserAvailabilityService;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Duplicate registrations are told apart by the name of the unique constraint the insert hit
+class AuthControllerRegisterTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserAvailabilityService userAvailabilityService = mock(UserAvailabilityService.class);
+    private final AuthController controller = new AuthController(mock(AuthenticationManager.class), userRepository,
+            mock(CustomUserDetailsService.class), mock(PasswordEncoder.class), mock(JwtUtil.class),
+            mock(TokenIntrospectionService.class), mock(LoginAttemptService.class), mock(UserActivityTracker.class),
+            userAvailabilityService, new ReadYourWritesTracker(5000), mock(AuditLog.class));
+
+    @Test
+    void registersANewUser() {
+        ResponseEntity<?> response = controller.register(request());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(userAvailabilityService).recordRegistration("alice", "alice@example.com");
+    }
+
+    @Test
+    void mapsTheUsernameConstraint() {
+        failInsert("duplicate key value violates unique constraint \"uk_users_username\"");
+        assertEquals("Username already exists", controller.register(request()).getBody());
+        verify(userAvailabilityService, never()).recordRegistration(any(), any());
+    }
+
+    // H2 reports the constraint's index in upper case
+    @Test
+    void mapsTheEmailConstraint() {
+        failInsert("Unique index or primary key violation: \"PUBLIC.UK_USERS_EMAIL_INDEX_4 ON PUBLIC.USERS(EMAIL)\"");
+        assertEquals("Email already exists", controller.register(request()).getBody());
+    }
+
+    // Neither answer may come from the lookup fallback when the constraint is named
+    @Test
+    void namedConstraintsNeedNoLookup() {
+        failInsert("Unique index or primary key violation: \"PUBLIC.UK_USERS_USERNAME_INDEX_4 ON PUBLIC.USERS(USERNAME NULLS FIRST)\"");
+        assertEquals("Username already exists", controller.register(request()).getBody());
+        verify(userRepository, never()).existsByUsername(any());
+        verify(userRepository, never()).existsByEmail(any());
+    }
+
+    // Drivers that leave the constraint name out fall back to one lookup
+    @Test
+    void fallsBackToALookupWithoutAConstraintName() {
+        failInsert("Duplicate entry");
+        when(userRepository.existsByUsername("alice")).thenReturn(true);
+        assertEquals("Username already exists", controller.register(request()).getBody());
+
+        when(userRepository.existsByUsername("alice")).thenReturn(false);
+        when(userRepository.existsByEmail("alice@example.com")).thenReturn(true);
+        assertEquals("Email already exists", controller.register(request()).getBody());
+    }
+
+    // Anything else, such as a NOT NULL or length violation, is no duplicate
+    @Test
+    void otherViolationsAreNotReportedAsDuplicates() {
+        failInsert("NULL not allowed for column \"EMAIL\"");
+        ResponseEntity<?> response = controller.register(request());
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Registration failed", response.getBody());
+    }
+
+    private void failInsert(String message) {
+        when(userRepository.save(any(User.class)))
+                .thenThrow(new DataIntegrityViolationException("could not execute statement", new SQLException(message)));
+    }
+
+    private static RegisterRequestDTO request() {
+        RegisterRequestDTO request = new RegisterRequestDTO();
+        request.setUsername("alice");
+        request.setEmail("alice@example.com");
+        request.setPassword("password");
+        return request;
+    }
+}
@@ -0,0 +1,136 @@
+package com.lls.rbac.controller;
+
+import com.lls.rbac.security.LoginAttemptService;
+import com.lls.rbac.security.RoleHierarchyIndex;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Token introspection and /api/authz/check, which gateways use to decide on requests the application never sees
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:authorizationcheck;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AuthorizationCheckTest {
+
+    private static final String PASSWORD = "check-password";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private RoleHierarchyIndex roleHierarchyIndex;
+
+    @Autowired
+    private LoginAttemptService loginAttemptService;
+
+    private Cookie admin;
+
+    @BeforeAll
+    void seed() throws Exception {
+        jdbcTemplate.update("INSERT INTO permissions (name) VALUES ('USER_READ'), ('ADMIN_READ')");
+        jdbcTemplate.update("INSERT INTO roles (name) VALUES ('USER'), ('ADMIN')");
+        jdbcTemplate.update("INSERT INTO role_permissions (role_id, permission_id) "
+                + "SELECT r.id, p.id FROM roles r, permissions p WHERE p.name = 'USER_READ' OR r.name = 'ADMIN'");
+        jdbcTemplate.update("UPDATE roles SET parent_id = (SELECT id FROM roles WHERE name = 'ADMIN') WHERE name = 'USER'");
+
+        String hash = passwordEncoder.encode(PASSWORD);
+        for (String username : new String[]{"admin", "alice", "grace", "mallory"}) {
+            jdbcTemplate.update("INSERT INTO users (username, email, password, is_enabled, is_account_non_expired, "
+                    + "is_account_non_locked, is_credentials_non_expired) VALUES (?, ?, ?, TRUE, TRUE, TRUE, TRUE)",
+                    username, username + "@check.test", hash);
+        }
+        jdbcTemplate.update("INSERT INTO users (username, email, password, is_enabled, is_account_non_expired, "
+                + "is_account_non_locked, is_credentials_non_expired) VALUES ('frank', 'frank@check.test', 'x', FALSE, TRUE, TRUE, TRUE)");
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) SELECT u.id, r.id FROM users u, roles r "
+                + "WHERE (u.username IN ('admin', 'frank') AND r.name = 'ADMIN') OR (u.username IN ('alice', 'grace', 'mallory') AND r.name = 'USER')");
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> roleHierarchyIndex.roleCount() == 2);
+        admin = login("admin");
+    }
+
+    // Introspection sits under the public /api/auth prefix but must not be anonymous
+    @Test
+    void introspectRequiresAdminRead() throws Exception {
+        Cookie alice = login("alice");
+        String body = "{\"tokens\":[\"" + alice.getValue() + "\"]}";
+        mockMvc.perform(post("/api/auth/introspect").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/auth/introspect").cookie(alice).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isForbidden());
+    }
+
+    // Disabled accounts hold no authorities, whatever their roles
+    @Test
+    void authorizationCheckOfDisabledUser() throws Exception {
+        mockMvc.perform(post("/api/authz/check").cookie(admin).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"checks\":[{\"username\":\"frank\",\"authority\":\"ADMIN_READ\"}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].granted").value(false));
+    }
+
+    // A failed-login lockout only stops password logins: the application, introspection and the authorization
+    // check all keep honouring the session, even once the lock has been written to the database. A lock set by
+    // an administrator ends the session everywhere the account state is checked.
+    @Test
+    void lockedUsers() throws Exception {
+        Cookie grace = login("grace");
+        Cookie mallory = login("mallory");
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"username\":\"grace\",\"password\":\"wrong\"}"))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"grace\",\"password\":\"" + PASSWORD + "\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Account is temporarily locked"));
+        loginAttemptService.flush();
+        jdbcTemplate.update("UPDATE users SET is_account_non_locked = FALSE WHERE username = 'mallory'");
+
+        mockMvc.perform(get("/api/user/test").cookie(grace)).andExpect(status().isOk());
+        mockMvc.perform(post("/api/auth/introspect").cookie(admin).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tokens\":[\"" + grace.getValue() + "\",\"" + mallory.getValue() + "\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].active").value(true))
+                .andExpect(jsonPath("$.data[0].authorities[0]").value("ROLE_USER"))
+                .andExpect(jsonPath("$.data[1].active").value(false));
+        mockMvc.perform(post("/api/authz/check").cookie(admin).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"checks\":[{\"username\":\"grace\",\"authority\":\"USER_READ\"},"
+                                + "{\"username\":\"mallory\",\"authority\":\"USER_READ\"}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].granted").value(true))
+                .andExpect(jsonPath("$.data[1].granted").value(false));
+    }
+
+    private Cookie login(String username) throws Exception {
+        return mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie("jwt-token");
+    }
+}
@@ -0,0 +1,239 @@
+package com.lls.rbac.controller;
+
+import com.lls.rbac.health.HealthMonitor;
+import com.lls.rbac.security.RoleHierarchyIndex;
+import com.lls.rbac.support.StatementCounting;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import static com.lls.rbac.support.StatementCounting.atMost;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// SQL statement budget for every endpoint, so an accidental N+1 or an extra lookup fails the build. Budgets are
+// for a request from an already logged-in user; raise one only together with a reason in the commit.
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:statementbudget;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(StatementCounting.class)
+class StatementBudgetTest {
+
+    private static final String PASSWORD = "budget-password";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private HealthMonitor healthMonitor;
+
+    @Autowired
+    private RoleHierarchyIndex roleHierarchyIndex;
+
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    private RequestMappingHandlerMapping handlerMapping;
+
+    private final Set<String> exercised = new ConcurrentSkipListSet<>();
+
+    private Cookie admin;
+    private Cookie user;
+
+    @BeforeAll
+    void seed() throws Exception {
+        jdbcTemplate.update("INSERT INTO permissions (name) VALUES ('USER_READ'), ('USER_WRITE'), ('ADMIN_READ')");
+        jdbcTemplate.update("INSERT INTO roles (name) VALUES ('USER'), ('MODERATOR'), ('ADMIN')");
+        jdbcTemplate.update("INSERT INTO role_permissions (role_id, permission_id) "
+                + "SELECT r.id, p.id FROM roles r, permissions p WHERE p.name = 'USER_READ' OR r.name = 'ADMIN'");
+        jdbcTemplate.update("UPDATE roles SET parent_id = (SELECT id FROM roles WHERE name = 'ADMIN') WHERE name = 'MODERATOR'");
+        jdbcTemplate.update("UPDATE roles SET parent_id = (SELECT id FROM roles WHERE name = 'MODERATOR') WHERE name = 'USER'");
+
+        String hash = passwordEncoder.encode(PASSWORD);
+        for (String username : new String[]{"admin", "alice", "bob", "carol", "erin"}) {
+            jdbcTemplate.update("INSERT INTO users (username, email, password, is_enabled, is_account_non_expired, "
+                    + "is_account_non_locked, is_credentials_non_expired) VALUES (?, ?, ?, TRUE, TRUE, TRUE, TRUE)",
+                    username, username + "@budget.test", hash);
+        }
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) SELECT u.id, r.id FROM users u, roles r "
+                + "WHERE (u.username = 'admin' AND r.name = 'ADMIN') OR (u.username IN ('alice', 'bob', 'carol') AND r.name = 'USER')");
+
+        // Seeded behind the application's back; the hierarchy notices the new roles by itself within its reload interval
+        await().atMost(Duration.ofSeconds(10)).until(() -> roleHierarchyIndex.roleCount() == 3);
+
+        admin = login("admin");
+        user = login("alice");
+
+        // /api/health answers 503 until the startup warm-up is done
+        await().atMost(Duration.ofSeconds(30)).until(healthMonitor::isReady);
+    }
+
+    // Every application endpoint must have a budget here
+    @AfterAll
+    void everyEndpointHasABudget() {
+        Set<String> endpoints = new TreeSet<>();
+        handlerMapping.getHandlerMethods().forEach((mapping, handler) -> {
+            if (handler.getBeanType().getPackageName().startsWith("com.lls.rbac")) {
+                endpoints.addAll(describe(mapping));
+            }
+        });
+        endpoints.removeAll(exercised);
+        assertEquals(Set.of(), endpoints, "Endpoints without a statement budget");
+    }
+
+    @Test
+    void login() throws Exception {
+        expect(1, post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"bob\",\"password\":\"" + PASSWORD + "\"}"));
+    }
+
+    // Freshly registered accounts have no roles yet
+    @Test
+    void loginWithoutRoles() throws Exception {
+        expect(1, post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"erin\",\"password\":\"" + PASSWORD + "\"}"));
+    }
+
+    @Test
+    void register() throws Exception {
+        expect(1, post("/api/auth/register").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"dave\",\"email\":\"dave@budget.test\",\"password\":\"" + PASSWORD + "\"}"));
+    }
+
+    @Test
+    void availability() throws Exception {
+        expect(0, get("/api/auth/availability").param("username", "nobody").param("email", "nobody@budget.test"));
+    }
+
+    @Test
+    void validateToken() throws Exception {
+        expect(0, get("/api/auth/validate-token").cookie(user));
+    }
+
+    @Test
+    void authProfile() throws Exception {
+        expect(2, get("/api/auth/profile").cookie(user));
+    }
+
+    @Test
+    void introspect() throws Exception {
+        expect(2, post("/api/auth/introspect").cookie(admin).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"tokens\":[\"" + user.getValue() + "\",\"" + admin.getValue() + "\"]}"));
+    }
+
+    @Test
+    void logout() throws Exception {
+        expect(0, post("/api/auth/logout").cookie(login("carol")));
+    }
+
+    @Test
+    void authorizationCheck() throws Exception {
+        expect(2, post("/api/authz/check").cookie(admin).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"checks\":[{\"authority\":\"USER_READ\"},{\"username\":\"alice\",\"authority\":\"ADMIN_READ\"},"
+                        + "{\"username\":\"bob\",\"authority\":\"USER_READ\"}]}"));
+    }
+
+    @Test
+    void testEndpoints() throws Exception {
+        expect(0, get("/api/public/test"));
+        expect(1, get("/api/user/test").cookie(user));
+        expect(1, get("/api/moderator/test").cookie(admin));
+        expect(1, get("/api/admin/test").cookie(admin));
+        expect(1, get("/api/profile").cookie(user));
+        expect(1, post("/api/admin/create-user").cookie(admin).contentType(MediaType.APPLICATION_JSON).content("{\"username\":\"x\"}"));
+        expect(1, delete("/api/admin/delete-user/42").cookie(admin));
+    }
+
+    @Test
+    void roleMembership() throws Exception {
+        expect(4, get("/api/admin/roles/USER/members").cookie(admin).param("count", "exact"));
+        expect(4, get("/api/admin/permissions/USER_READ/roles").cookie(admin));
+    }
+
+    @Test
+    void roleAssignment() throws Exception {
+        String names = "{\"names\":[\"bob\",\"carol\",\"nobody\"]}";
+        // Membership changes also touch the users' updated_at
+        expect(7, post("/api/admin/roles/MODERATOR/members").cookie(admin).contentType(MediaType.APPLICATION_JSON).content(names));
+        expect(7, delete("/api/admin/roles/MODERATOR/members").cookie(admin).contentType(MediaType.APPLICATION_JSON).content(names));
+
+        String roles = "{\"names\":[\"USER\",\"MODERATOR\"]}";
+        expect(6, post("/api/admin/permissions/USER_WRITE/roles").cookie(admin).contentType(MediaType.APPLICATION_JSON).content(roles));
+        expect(6, delete("/api/admin/permissions/USER_WRITE/roles").cookie(admin).contentType(MediaType.APPLICATION_JSON).content(roles));
+    }
+
+    @Test
+    void health() throws Exception {
+        expect(1, get("/api/health").cookie(user));
+        expect(0, get("/api/health/liveness"));
+        expect(0, get("/api/health/readiness"));
+    }
+
+    @Test
+    void concurrency() throws Exception {
+        expect(1, get("/api/admin/concurrency").cookie(admin));
+    }
+
+    @Test
+    void jwks() throws Exception {
+        expect(0, get("/.well-known/jwks.json"));
+    }
+
+    private ResultActions expect(int statements, MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request)
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(record())
+                .andExpect(atMost(statements));
+    }
+
+    private ResultMatcher record() {
+        return result -> exercised.add(StatementCounting.describe(result.getRequest()));
+    }
+
+    private Cookie login(String username) throws Exception {
+        return mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie("jwt-token");
+    }
+
+    private static Set<String> describe(RequestMappingInfo mapping) {
+        Set<String> described = new TreeSet<>();
+        for (String pattern : mapping.getPatternValues()) {
+            mapping.getMethodsCondition().getMethods().forEach(method -> described.add(method + " " + pattern));
+        }
+        return described;
+    }
+}
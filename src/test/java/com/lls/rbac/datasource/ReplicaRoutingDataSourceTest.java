@@ -0,0 +1,133 @@
+package com.lls.rbac.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Each H2 database answers "SELECT name FROM whoami" with its own name
+class ReplicaRoutingDataSourceTest {
+
+    private final ReadYourWritesTracker tracker = new ReadYourWritesTracker(60_000);
+
+    @Test
+    void readOnlyTransactionsGoToReplicasAndWritesToThePrimary() {
+        Fixture fixture = new Fixture(ReplicaProperties.Policy.ROUND_ROBIN, "primary", "replica-a", "replica-b");
+
+        assertEquals("primary", fixture.whoami(false));
+        assertEquals(List.of("replica-a", "replica-b", "replica-a", "replica-b"),
+                List.of(fixture.whoami(true), fixture.whoami(true), fixture.whoami(true), fixture.whoami(true)));
+    }
+
+    @Test
+    void readsFollowRecentWritesToThePrimary() {
+        Fixture fixture = new Fixture(ReplicaProperties.Policy.ROUND_ROBIN, "primary", "replica-a");
+
+        tracker.recordWrite("alice");
+        assertEquals("primary", tracker.withSubject("alice", () -> fixture.whoami(true)));
+        assertEquals("replica-a", tracker.withSubject("bob", () -> fixture.whoami(true)));
+
+        tracker.recordGlobalWrite();
+        assertEquals("primary", tracker.withSubject("bob", () -> fixture.whoami(true)));
+    }
+
+    @Test
+    void failingReplicaIsEjectedUntilItRecovers() {
+        Fixture fixture = new Fixture(ReplicaProperties.Policy.ROUND_ROBIN, "primary", "replica-a");
+        fixture.replicas.get(0).down = true;
+
+        assertEquals("primary", fixture.whoami(true));
+        assertEquals(0, fixture.router.healthyReplicas());
+
+        fixture.replicas.get(0).down = false;
+        assertEquals("primary", fixture.whoami(true));
+        fixture.router.checkHealth();
+        assertEquals(1, fixture.router.healthyReplicas());
+        assertEquals("replica-a", fixture.whoami(true));
+    }
+
+    @Test
+    void leastConnectionsAvoidsTheBusyReplica() throws SQLException {
+        Fixture fixture = new Fixture(ReplicaProperties.Policy.LEAST_CONNECTIONS, "primary", "replica-a", "replica-b");
+
+        try (Connection held = fixture.router.getConnection()) {
+            String busy = new JdbcTemplate(new SingleConnectionDataSource(held, true)).queryForObject("SELECT name FROM whoami", String.class);
+            String expected = busy.equals("replica-a") ? "replica-b" : "replica-a";
+            assertEquals(expected, fixture.whoami(true));
+            assertEquals(expected, fixture.whoami(true));
+        }
+    }
+
+    // Per-call credentials would bypass the configured pools
+    @Test
+    void refusesPerCallCredentials() {
+        Fixture fixture = new Fixture(ReplicaProperties.Policy.ROUND_ROBIN, "primary", "replica-a");
+        assertThrows(SQLFeatureNotSupportedException.class, () -> fixture.router.getConnection("someone", "secret"));
+    }
+
+    private final class Fixture {
+        private final List<SwitchableDataSource> replicas;
+        private final ReplicaRoutingDataSource router;
+        private final TransactionTemplate readOnly;
+        private final TransactionTemplate readWrite;
+        private final JdbcTemplate jdbcTemplate;
+
+        private Fixture(ReplicaProperties.Policy policy, String primaryName, String... replicaNames) {
+            DataSource primary = database(primaryName);
+            this.replicas = Arrays.stream(replicaNames).map(name -> new SwitchableDataSource(database(name))).toList();
+            this.router = new ReplicaRoutingDataSource(primary, List.copyOf(replicas), policy, tracker, 1);
+
+            LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+            dataSource.setReadOnlyDataSource(router);
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            this.readOnly = new TransactionTemplate(transactionManager);
+            this.readOnly.setReadOnly(true);
+            this.readWrite = new TransactionTemplate(transactionManager);
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+        }
+
+        private String whoami(boolean readOnlyTransaction) {
+            return (readOnlyTransaction ? readOnly : readWrite)
+                    .execute(status -> jdbcTemplate.queryForObject("SELECT name FROM whoami", String.class));
+        }
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:routing-" + name + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE whoami (name VARCHAR(32))");
+        jdbcTemplate.update("INSERT INTO whoami VALUES (?)", name);
+        return dataSource;
+    }
+
+    private static final class SwitchableDataSource extends DelegatingDataSource {
+        private volatile boolean down;
+
+        private SwitchableDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("Connection refused");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.lls.rbac.directory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserDirectoryStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storesReplacesAndFindsUsers() throws Exception {
+        try (UserDirectoryStore store = new UserDirectoryStore(directory, 16, 4096)) {
+            assertTrue(store.put(entry(1, "alice", "hash-1", true, 10L, 20L), 100));
+            assertTrue(store.put(entry(2, "bøb", null, false), 100));
+            assertTrue(store.put(entry(1, "alice", "hash-2", false, 30L), 200));
+
+            DirectoryEntry alice = store.find("alice");
+            assertEquals(1, alice.id());
+            assertEquals("hash-2", alice.password());
+            assertFalse(alice.accountNonLocked());
+            assertArrayEquals(new long[]{30L}, alice.roleIds());
+            assertEquals(200, store.updatedAt("alice"));
+
+            DirectoryEntry bob = store.find("bøb");
+            assertNull(bob.password());
+            assertArrayEquals(new long[0], bob.roleIds());
+
+            assertNull(store.find("carol"));
+            assertEquals(Long.MIN_VALUE, store.updatedAt("carol"));
+            assertEquals(2, store.size());
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void keepsTheLockExpiry() throws Exception {
+        LocalDateTime expired = LocalDateTime.now().minusMinutes(1).withNano(123_456_000);
+        try (UserDirectoryStore store = new UserDirectoryStore(directory, 16, 4096)) {
+            store.put(new DirectoryEntry(1, "alice", "x", true, true, false, expired, true, new long[0]), 1);
+            store.put(entry(2, "bob", "x", false), 1);
+
+            DirectoryEntry alice = store.find("alice");
+            assertEquals(expired, alice.lockExpiresAt());
+            // A temporary lock that ran out no longer locks, as when the user is read from the database
+            assertTrue(alice.toUser().isAccountNonLocked());
+            assertNull(store.find("bob").lockExpiresAt());
+            assertFalse(store.find("bob").toUser().isAccountNonLocked());
+        }
+    }
+
+    @Test
+    void removesUsersWithoutLosingTheirNeighbours() throws Exception {
+        // Nearly full, so probe runs are long and removals have to shift entries back
+        try (UserDirectoryStore store = new UserDirectoryStore(directory, 64, 16 * 1024)) {
+            for (int i = 0; i < 64; i++) {
+                assertTrue(store.put(entry(i, "user-" + i, "x", true), 1));
+            }
+            List<Long> ids = new ArrayList<>();
+            store.forEach((username, id) -> ids.add(id));
+            assertEquals(64, ids.size());
+
+            for (int i = 0; i < 64; i += 3) {
+                assertTrue(store.remove("user-" + i));
+            }
+            assertFalse(store.remove("user-0"));
+            assertFalse(store.remove("carol"));
+            for (int i = 0; i < 64; i++) {
+                DirectoryEntry entry = store.find("user-" + i);
+                if (i % 3 == 0) {
+                    assertNull(entry);
+                } else {
+                    assertEquals(i, entry.id());
+                }
+            }
+            assertEquals(42, store.size());
+            // The freed room takes new users again
+            assertTrue(store.put(entry(100, "user-100", "x", true), 2));
+            assertEquals(100, store.find("user-100").id());
+        }
+    }
+
+    @Test
+    void refusesUsersBeyondItsCapacity() throws Exception {
+        try (UserDirectoryStore byCount = new UserDirectoryStore(directory, 2, 4096);
+             UserDirectoryStore byBytes = new UserDirectoryStore(directory, 16, 64)) {
+            assertTrue(byCount.put(entry(1, "a", "x", true), 1));
+            assertTrue(byCount.put(entry(2, "b", "x", true), 1));
+            assertFalse(byCount.put(entry(3, "c", "x", true), 1));
+            // Replacing a stored user still fits
+            assertTrue(byCount.put(entry(2, "b", "y", true), 2));
+
+            assertTrue(byBytes.put(entry(1, "a", "x", true), 1));
+            assertFalse(byBytes.put(entry(2, "b", "x".repeat(60), true), 1));
+            assertNull(byBytes.find("b"));
+        }
+    }
+
+    @Test
+    void readersNeverSeeAHalfWrittenRecordWhileTheWriterRuns() throws Exception {
+        try (UserDirectoryStore store = new UserDirectoryStore(directory, 1024, 16 * 1024 * 1024)) {
+            for (int i = 0; i < 100; i++) {
+                store.put(entry(i, "user-" + i, "hash-" + i + "-0", true, i), 0);
+            }
+
+            AtomicBoolean writing = new AtomicBoolean(true);
+            AtomicReference<String> failure = new AtomicReference<>();
+            List<Thread> readers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread reader = new Thread(() -> {
+                    int i = 0;
+                    while (writing.get()) {
+                        int user = i++ % 100;
+                        DirectoryEntry entry = store.find("user-" + user);
+                        if (entry == null || entry.id() != user || !entry.password().startsWith("hash-" + user + "-")
+                                || entry.roleIds().length != 1 || entry.roleIds()[0] != user) {
+                            failure.compareAndSet(null, "user-" + user + ": " + entry);
+                        }
+                    }
+                });
+                reader.start();
+                readers.add(reader);
+            }
+
+            for (int round = 1; round <= 200; round++) {
+                for (int i = 0; i < 100; i++) {
+                    assertTrue(store.put(entry(i, "user-" + i, "hash-" + i + "-" + round, true, i), round));
+                }
+            }
+            writing.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+
+            assertNull(failure.get());
+            assertEquals("hash-7-200", store.find("user-7").password());
+        }
+    }
+
+    private static DirectoryEntry entry(long id, String username, String password, boolean accountNonLocked, long... roleIds) {
+        return new DirectoryEntry(id, username, password, true, true, accountNonLocked, null, true, roleIds);
+    }
+}
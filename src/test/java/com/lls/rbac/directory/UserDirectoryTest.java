@@ -0,0 +1,106 @@
+package com.lls.rbac.directory;
+
+import com.lls.rbac.repository.UserRepository;
+import com.lls.rbac.repository.projection.DirectoryUserView;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserDirectoryTest {
+
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @TempDir
+    Path path;
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private UserDirectory directory;
+
+    @AfterEach
+    void tearDown() {
+        directory.close();
+    }
+
+    @Test
+    void pollDropsDeletedUsers() {
+        LocalDateTime lockExpiresAt = LocalDateTime.now().plusMinutes(5).withNano(0);
+        when(userRepository.count()).thenReturn(3L);
+        List<DirectoryUserView> users = List.of(user(1, "alice", null), user(2, "bob", lockExpiresAt), user(3, "carol", null));
+        when(userRepository.findDirectoryPage(eq(0L), any())).thenReturn(users);
+        directory = new UserDirectory(userRepository, true, path.toString(), 16, 256, 5000, 3_600_000);
+        directory.refresh();
+        assertEquals(lockExpiresAt, directory.find("bob").lockExpiresAt());
+
+        // Nothing deleted, so the ids are never checked
+        when(userRepository.findDirectoryChanges(any(), anyLong(), any())).thenReturn(List.of());
+        when(userRepository.countByIdLessThanEqual(3L)).thenReturn(3L);
+        directory.refresh();
+        verify(userRepository, never()).findExistingIds(anyCollection());
+
+        when(userRepository.countByIdLessThanEqual(3L)).thenReturn(2L);
+        existing(1L, 3L);
+        directory.refresh();
+        assertNotNull(directory.find("alice"));
+        assertNull(directory.find("bob"));
+        assertNotNull(directory.find("carol"));
+    }
+
+    @Test
+    void deleteIsNotHiddenByARegistrationInTheSameInterval() {
+        when(userRepository.count()).thenReturn(2L);
+        List<DirectoryUserView> users = List.of(user(1, "alice", null), user(2, "bob", null));
+        when(userRepository.findDirectoryPage(eq(0L), any())).thenReturn(users);
+        directory = new UserDirectory(userRepository, true, path.toString(), 16, 256, 5000, 3_600_000);
+        directory.refresh();
+
+        // bob is deleted and dave registers before the next poll, so the whole table still holds two users
+        when(userRepository.count()).thenReturn(2L);
+        List<DirectoryUserView> registered = List.of(user(4, "dave", null));
+        when(userRepository.findDirectoryChanges(any(), anyLong(), any())).thenReturn(registered);
+        when(userRepository.countByIdLessThanEqual(4L)).thenReturn(2L);
+        existing(1L, 4L);
+        directory.refresh();
+        assertNotNull(directory.find("alice"));
+        assertNull(directory.find("bob"));
+        assertNotNull(directory.find("dave"));
+    }
+
+    private void existing(Long... ids) {
+        List<Long> present = List.of(ids);
+        when(userRepository.findExistingIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> asked = invocation.getArgument(0);
+            return asked.stream().filter(present::contains).toList();
+        });
+    }
+
+    private static DirectoryUserView user(long id, String username, LocalDateTime lockExpiresAt) {
+        DirectoryUserView view = mock(DirectoryUserView.class);
+        when(view.getId()).thenReturn(id);
+        when(view.getUsername()).thenReturn(username);
+        when(view.getPassword()).thenReturn("x");
+        when(view.getEnabled()).thenReturn(true);
+        when(view.getAccountNonExpired()).thenReturn(true);
+        when(view.getAccountNonLocked()).thenReturn(lockExpiresAt == null);
+        when(view.getLockExpiresAt()).thenReturn(lockExpiresAt);
+        when(view.getCredentialsNonExpired()).thenReturn(true);
+        when(view.getUpdatedAt()).thenReturn(UPDATED_AT);
+        return view;
+    }
+}
@@ -0,0 +1,120 @@
+package com.lls.rbac.health;
+
+import com.lls.rbac.audit.AuditLog;
+import com.lls.rbac.datasource.ReplicaRoutingDataSource;
+import com.lls.rbac.jwt.JwtUtil;
+import com.lls.rbac.security.AuthorizationVersionService;
+import com.lls.rbac.security.RoleHierarchyIndex;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HealthMonitorTest {
+
+    private final RoleHierarchyIndex roleHierarchyIndex = mock(RoleHierarchyIndex.class);
+    private final AuthorizationVersionService versionService = mock(AuthorizationVersionService.class);
+    private FlakyDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:health-" + System.nanoTime());
+        dataSource = new FlakyDataSource(h2);
+        when(roleHierarchyIndex.roleCount()).thenReturn(3);
+        when(versionService.lastReadAt()).thenAnswer(invocation -> System.currentTimeMillis());
+    }
+
+    @Test
+    void notReadyUntilTheFirstRefresh() throws Exception {
+        HealthMonitor monitor = monitor(15_000);
+        assertTrue(monitor.isLive());
+        assertFalse(monitor.isReady());
+
+        monitor.refresh();
+        assertTrue(monitor.isReady());
+        assertEquals(HealthSnapshot.Status.UP, monitor.snapshot().status());
+    }
+
+    @Test
+    void notReadyWhileWarmingUp() throws Exception {
+        HealthMonitor monitor = monitor(15_000);
+        monitor.warmUpStarted();
+        monitor.refresh();
+        assertFalse(monitor.isReady());
+        assertTrue(monitor.isLive());
+
+        monitor.warmUpFinished();
+        assertTrue(monitor.isReady());
+    }
+
+    @Test
+    void databaseOutageTakesTheInstanceOutOfRotationButKeepsItAlive() throws Exception {
+        HealthMonitor monitor = monitor(15_000);
+        dataSource.down = true;
+        monitor.refresh();
+
+        assertEquals(HealthSnapshot.Status.DOWN, monitor.snapshot().components().get("database").status());
+        assertFalse(monitor.isReady());
+        assertTrue(monitor.isLive());
+
+        dataSource.down = false;
+        monitor.refresh();
+        assertTrue(monitor.isReady());
+    }
+
+    @Test
+    void staleSnapshotIsNotReady() throws Exception {
+        HealthMonitor monitor = monitor(50);
+        monitor.refresh();
+        assertTrue(monitor.isReady());
+
+        Thread.sleep(100);
+        assertFalse(monitor.isReady());
+        assertTrue(monitor.isLive());
+    }
+
+    @Test
+    void nonCriticalProblemsOnlyDegrade() throws Exception {
+        when(roleHierarchyIndex.roleCount()).thenReturn(0);
+        HealthMonitor monitor = monitor(15_000);
+        monitor.refresh();
+
+        assertEquals(HealthSnapshot.Status.DEGRADED, monitor.snapshot().status());
+        assertTrue(monitor.isReady());
+    }
+
+    @SuppressWarnings("unchecked")
+    private HealthMonitor monitor(long readinessStaleAfterMs) throws Exception {
+        ObjectProvider<ReplicaRoutingDataSource> noReplicas = mock(ObjectProvider.class);
+        AuditLog auditLog = new AuditLog(false, "target/audit", 4096, 16, 1000, 0);
+        return new HealthMonitor(dataSource, new JwtUtil(JwtUtil.Algorithm.HS512, "", "", ""), roleHierarchyIndex,
+                versionService, auditLog, noReplicas, 1, 0.9, readinessStaleAfterMs, 60_000, 2000);
+    }
+
+    private static final class FlakyDataSource extends DelegatingDataSource {
+        private volatile boolean down;
+
+        private FlakyDataSource(JdbcDataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("Connection refused");
+            }
+            return super.getConnection();
+        }
+    }
+}
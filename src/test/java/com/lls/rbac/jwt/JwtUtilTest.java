@@ -0,0 +1,92 @@
+package com.lls.rbac.jwt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.security.KeyPair;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtUtilTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void asymmetricTokensVerifyOfflineAgainstThePublishedKeySet() throws Exception {
+        for (JwtUtil.Algorithm algorithm : new JwtUtil.Algorithm[]{JwtUtil.Algorithm.ES256, JwtUtil.Algorithm.EdDSA}) {
+            JwtUtil jwtUtil = new JwtUtil(algorithm, "", "", "");
+            String token = jwtUtil.generateToken("alice");
+
+            assertEquals("alice", jwtUtil.validateToken(token));
+            assertEquals("alice", verifyLikeAnotherService(jwtUtil, token), algorithm.name());
+        }
+    }
+
+    @Test
+    void previousKeyStillVerifiesAfterRotation() throws Exception {
+        KeyPair old = Jwks.CRV.Ed25519.keyPair().build();
+        KeyPair current = Jwks.CRV.Ed25519.keyPair().build();
+        Path oldPublic = writePem("old.pub", "PUBLIC KEY", old.getPublic());
+        Path oldPrivate = writePem("old.key", "PRIVATE KEY", old.getPrivate());
+        Path currentPublic = writePem("current.pub", "PUBLIC KEY", current.getPublic());
+        Path currentPrivate = writePem("current.key", "PRIVATE KEY", current.getPrivate());
+
+        String oldToken = new JwtUtil(JwtUtil.Algorithm.EdDSA, oldPrivate.toString(), oldPublic.toString(), "").generateToken("bob");
+        JwtUtil rotated = new JwtUtil(JwtUtil.Algorithm.EdDSA, currentPrivate.toString(), currentPublic.toString(), oldPublic.toString());
+
+        assertEquals(2, rotated.publicJwks().size());
+        assertEquals(rotated.keyId(), rotated.publicJwks().get(0).get("kid"));
+        assertEquals("bob", rotated.validateToken(oldToken));
+        assertEquals("bob", verifyLikeAnotherService(rotated, oldToken));
+        assertEquals("carol", rotated.validateToken(rotated.generateToken("carol")));
+
+        // Without the previous key the old token has no known kid
+        JwtUtil withoutPrevious = new JwtUtil(JwtUtil.Algorithm.EdDSA, currentPrivate.toString(), currentPublic.toString(), "");
+        assertNull(withoutPrevious.validateToken(oldToken));
+    }
+
+    @Test
+    void symmetricModePublishesNothing() throws Exception {
+        JwtUtil jwtUtil = new JwtUtil(JwtUtil.Algorithm.HS512, "", "", "");
+        assertTrue(jwtUtil.publicJwks().isEmpty());
+        assertEquals("dave", jwtUtil.validateToken(jwtUtil.generateToken("dave")));
+        assertNull(new JwtUtil(JwtUtil.Algorithm.HS512, "", "", "").validateToken(jwtUtil.generateToken("dave")));
+    }
+
+    // Round-trips the key set through JSON and verifies with nothing but the JWKS document
+    private static String verifyLikeAnotherService(JwtUtil jwtUtil, String token) throws Exception {
+        String json = new ObjectMapper().writeValueAsString(Map.of("keys", jwtUtil.publicJwks()));
+        JwkSet jwkSet = Jwks.setParser().build().parse(json);
+        return Jwts.parser()
+                .keyLocator(header -> {
+                    String kid = ((io.jsonwebtoken.ProtectedHeader) header).getKeyId();
+                    return jwkSet.getKeys().stream()
+                            .filter(jwk -> jwk.getId().equals(kid))
+                            .map(jwk -> (Key) ((PublicJwk<?>) jwk).toKey())
+                            .findFirst()
+                            .orElseThrow();
+                })
+                .build()
+                .parseSignedClaims(token)
+                .getPayload()
+                .getSubject();
+    }
+
+    private Path writePem(String name, String type, Key key) throws Exception {
+        String body = Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(key.getEncoded());
+        return Files.writeString(directory.resolve(name), "-----BEGIN " + type + "-----\n" + body + "\n-----END " + type + "-----\n");
+    }
+}
@@ -0,0 +1,65 @@
+package com.lls.rbac.limit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = 10_000_000;
+    private static final long SLOW = 50_000_000;
+
+    @Test
+    void rejectsImmediatelyOnceTheLimitIsReached() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("test", 4, 1, 10);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        assertFalse(limit.tryAcquire());
+        assertEquals(1, limit.rejected());
+
+        limit.release(FAST, false);
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void shrinksWhenLatencyRisesAndRecoversWhenItFalls() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("test", 100, 10, 200);
+        feed(limit, FAST, 200);
+        assertEquals(200, limit.limit());
+
+        feed(limit, SLOW, 50);
+        assertTrue(limit.limit() < 100, "limit was " + limit.limit());
+
+        feed(limit, FAST, 200);
+        assertTrue(limit.limit() > 150, "limit was " + limit.limit());
+    }
+
+    @Test
+    void doesNotGrowWithoutDemand() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("test", 100, 10, 200);
+        for (int i = 0; i < 200; i++) {
+            limit.onSample(FAST, 5);
+        }
+        assertEquals(100, limit.limit());
+    }
+
+    @Test
+    void failuresBackTheLimitOffToTheFloor() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("test", 100, 10, 200);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(FAST, true);
+        }
+        assertEquals(10, limit.limit());
+    }
+
+    // Samples taken while the limit is fully used
+    private static void feed(AdaptiveConcurrencyLimit limit, long rttNanos, int samples) {
+        for (int i = 0; i < samples; i++) {
+            limit.onSample(rttNanos, limit.limit());
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.lls.rbac.load;
+
+import com.lls.rbac.security.RoleHierarchyIndex;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Drives a mixed workload over real HTTP and compares per-endpoint latency percentiles and throughput
+// against load/baseline.properties. Run with: mvn test -Pload-test
+@Tag("load")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+@ActiveProfiles("test")
+class ApiLoadTest {
+
+    private static final String PASSWORD = "load-test-password";
+    private static final Path REPORT = Path.of("target", "load-report.properties");
+
+    private final int users = Integer.getInteger("load.users", 200);
+    private final int workers = Integer.getInteger("load.workers", 16);
+    private final Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 5));
+    private final Duration duration = Duration.ofSeconds(Long.getLong("load.duration-seconds", 20));
+    private final double tolerance = Double.parseDouble(System.getProperty("load.tolerance", "0.5"));
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final AtomicLong registrations = new AtomicLong();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private RoleHierarchyIndex roleHierarchyIndex;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("INSERT INTO permissions (name) VALUES ('USER_READ'), ('ADMIN_READ')");
+        jdbcTemplate.update("INSERT INTO roles (name) VALUES ('USER'), ('ADMIN')");
+        jdbcTemplate.update("INSERT INTO role_permissions (role_id, permission_id) "
+                + "SELECT r.id, p.id FROM roles r, permissions p WHERE p.name = 'USER_READ' OR r.name = 'ADMIN'");
+
+        // Every seeded user shares one hash, so seeding costs a single BCrypt round
+        String hash = passwordEncoder.encode(PASSWORD);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            rows.add(new Object[]{username(i), username(i) + "@load.test", hash});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, email, password, is_enabled, is_account_non_expired, "
+                + "is_account_non_locked, is_credentials_non_expired) VALUES (?, ?, ?, TRUE, TRUE, TRUE, TRUE)", rows);
+
+        // One in ten seeded users is an administrator, see isAdmin
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) SELECT u.id, r.id FROM users u, roles r "
+                + "WHERE u.username LIKE 'load-user-%' AND (r.name = 'USER' OR u.username LIKE 'load-user-%0')");
+        // Seeded behind the application's back; the hierarchy notices the new roles by itself within its reload interval
+        await().atMost(Duration.ofSeconds(10)).until(() -> roleHierarchyIndex.roleCount() == 2);
+    }
+
+    @Test
+    void mixedWorkloadStaysWithinBaseline() throws Exception {
+        LoadGenerator<Session> generator = new LoadGenerator<Session>()
+                .operation("login", 10, this::login)
+                .operation("profile", 30, session -> get("/api/auth/profile", session))
+                .operation("user-test", 30, session -> get("/api/user/test", session))
+                .operation("admin-test", 20, session -> get("/api/admin/test", session))
+                .operation("register", 10, this::register);
+
+        Map<String, LoadGenerator.Result> results = generator.run(workers, warmup, duration, worker -> {
+            Session session = new Session(username(worker % users));
+            try {
+                // Every worker signs in at once, and the concurrency limiter sheds part of that burst with 503
+                int status = login(session);
+                for (int attempt = 1; status == 503 && attempt < 50; attempt++) {
+                    Thread.sleep(100);
+                    status = login(session);
+                }
+                if (status != 200) {
+                    throw new IllegalStateException("Login answered " + status);
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not log in " + session.username, e);
+            }
+            return session;
+        });
+
+        Properties report = report(results);
+        assertStatusMix(results);
+
+        Properties baseline = new Properties();
+        try (InputStream in = getClass().getResourceAsStream("/load/baseline.properties")) {
+            if (in != null) {
+                baseline.load(in);
+            }
+        }
+
+        List<String> regressions = new ArrayList<>();
+        for (String key : baseline.stringPropertyNames()) {
+            if (!report.containsKey(key)) {
+                continue;
+            }
+            double expected = Double.parseDouble(baseline.getProperty(key));
+            double actual = Double.parseDouble(report.getProperty(key));
+            boolean higherIsBetter = key.endsWith(".throughput");
+            boolean regressed = higherIsBetter ? actual < expected * (1 - tolerance) : actual > expected * (1 + tolerance);
+            if (regressed) {
+                regressions.add(String.format("%s: %.2f vs baseline %.2f", key, actual, expected));
+            }
+        }
+        assertTrue(regressions.isEmpty(), "Load test regressed beyond " + (int) (tolerance * 100) + "%: " + regressions);
+    }
+
+    // Latencies of a workload that mostly failed mean nothing, so the answers are checked first: user paths
+    // must succeed, and admin-test must be granted to about as many workers as are administrators
+    private void assertStatusMix(Map<String, LoadGenerator.Result> results) {
+        List<String> problems = new ArrayList<>();
+        for (String operation : List.of("login", "profile", "user-test", "register")) {
+            double succeeded = share(results.get(operation), status -> status >= 200 && status < 300);
+            if (!(succeeded >= 0.99)) {
+                problems.add(String.format("%s: %.1f%% 2xx %s", operation, succeeded * 100, results.get(operation).statuses()));
+            }
+        }
+
+        LoadGenerator.Result admin = results.get("admin-test");
+        double answered = share(admin, status -> status == 200 || status == 403);
+        double granted = share(admin, status -> status == 200);
+        double expected = (double) IntStream.range(0, workers).filter(worker -> isAdmin(worker % users)).count() / workers;
+        if (!(answered >= 0.99) || Math.abs(granted - expected) > 0.1) {
+            problems.add(String.format("admin-test: %.1f%% granted, expected about %.1f%% %s", granted * 100, expected * 100, admin.statuses()));
+        }
+        assertTrue(problems.isEmpty(), "Unexpected responses: " + problems);
+    }
+
+    // NaN when the operation never ran, which fails every comparison above
+    private static double share(LoadGenerator.Result result, IntPredicate statuses) {
+        long matching = result.statuses().entrySet().stream()
+                .filter(entry -> statuses.test(entry.getKey()))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+        return (double) matching / result.count();
+    }
+
+    private Properties report(Map<String, LoadGenerator.Result> results) throws Exception {
+        Properties report = new Properties();
+        System.out.printf("%n%-12s %10s %10s %10s %10s %10s  %s%n", "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "statuses");
+        double total = 0;
+        for (Map.Entry<String, LoadGenerator.Result> entry : results.entrySet()) {
+            LoadGenerator.Result result = entry.getValue();
+            System.out.printf("%-12s %10d %10.1f %10.2f %10.2f %10.2f  %s%n", entry.getKey(), result.count(), result.throughput(),
+                    result.percentileMillis(50), result.percentileMillis(99), result.percentileMillis(99.9), result.statuses());
+            report.setProperty(entry.getKey() + ".p50", format(result.percentileMillis(50)));
+            report.setProperty(entry.getKey() + ".p99", format(result.percentileMillis(99)));
+            report.setProperty(entry.getKey() + ".p999", format(result.percentileMillis(99.9)));
+            report.setProperty(entry.getKey() + ".throughput", format(result.throughput()));
+            total += result.throughput();
+        }
+        report.setProperty("total.throughput", format(total));
+        System.out.printf("%-12s %21.1f%n%n", "total", total);
+
+        // Copy this file over src/test/resources/load/baseline.properties to accept a new baseline
+        Files.createDirectories(REPORT.getParent());
+        try (OutputStream out = Files.newOutputStream(REPORT)) {
+            report.store(out, workers + " workers, " + users + " users, " + duration.toSeconds() + "s");
+        }
+        return report;
+    }
+
+    private int login(Session session) throws Exception {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri("/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"" + session.username + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        response.headers().allValues("Set-Cookie").stream()
+                .filter(cookie -> cookie.startsWith("jwt-token="))
+                .findFirst()
+                .ifPresent(cookie -> session.token = cookie.substring("jwt-token=".length(), cookie.indexOf(';')));
+        return response.statusCode();
+    }
+
+    private int register(Session session) throws Exception {
+        String name = "load-signup-" + registrations.incrementAndGet();
+        return client.send(HttpRequest.newBuilder(uri("/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"" + name + "\",\"email\":\"" + name + "@load.test\","
+                        + "\"password\":\"" + PASSWORD + "\",\"firstName\":\"Load\",\"middleName\":\"T\",\"lastName\":\"Test\"}"))
+                .build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private int get(String path, Session session) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path))
+                .header("Cookie", "jwt-token=" + session.token)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static String username(int index) {
+        return "load-user-" + index;
+    }
+
+    private static boolean isAdmin(int index) {
+        return index % 10 == 0;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static final class Session {
+        private final String username;
+        private volatile String token = "";
+
+        private Session(String username) {
+            this.username = username;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.lls.rbac.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+// Closed-model generator: a fixed number of workers each issue one request at a time, back to back,
+// picking the next operation by weight. Latencies go into one HdrHistogram per operation.
+class LoadGenerator<S> {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    interface Operation<S> {
+        // Returns the HTTP status of the request it issued
+        int execute(S session) throws Exception;
+    }
+
+    private record WeightedOperation<S>(String name, int weight, Operation<S> operation) {}
+
+    private final List<WeightedOperation<S>> operations = new ArrayList<>();
+    private int totalWeight;
+
+    LoadGenerator<S> operation(String name, int weight, Operation<S> operation) {
+        operations.add(new WeightedOperation<>(name, weight, operation));
+        totalWeight += weight;
+        return this;
+    }
+
+    Map<String, Result> run(int workers, Duration warmup, Duration duration, IntFunction<S> sessionFactory) throws Exception {
+        Map<String, Result> results = new LinkedHashMap<>();
+        operations.forEach(op -> results.put(op.name(), new Result()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            long start = System.nanoTime();
+            long recordFrom = start + warmup.toNanos();
+            long deadline = recordFrom + duration.toNanos();
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                int worker = i;
+                futures.add(executor.submit(() -> {
+                    S session = sessionFactory.apply(worker);
+                    while (true) {
+                        long begin = System.nanoTime();
+                        if (begin >= deadline) {
+                            return null;
+                        }
+                        WeightedOperation<S> op = pick();
+                        int status;
+                        try {
+                            status = op.operation().execute(session);
+                        } catch (Exception e) {
+                            status = -1;
+                        }
+                        long end = System.nanoTime();
+                        if (begin >= recordFrom) {
+                            results.get(op.name()).record(end - begin, status);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        results.values().forEach(result -> result.elapsedNanos = duration.toNanos());
+        return results;
+    }
+
+    private WeightedOperation<S> pick() {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (WeightedOperation<S> op : operations) {
+            ticket -= op.weight();
+            if (ticket < 0) {
+                return op;
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    static final class Result {
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private long elapsedNanos;
+
+        private void record(long nanos, int status) {
+            latencies.recordValue(Math.min(nanos, HIGHEST_TRACKABLE_NANOS));
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        long count() {
+            return latencies.getTotalCount();
+        }
+
+        double throughput() {
+            return elapsedNanos == 0 ? 0 : count() / (elapsedNanos / 1e9);
+        }
+
+        double percentileMillis(double percentile) {
+            return latencies.getValueAtPercentile(percentile) / 1e6;
+        }
+
+        Map<Integer, Long> statuses() {
+            Map<Integer, Long> counts = new LinkedHashMap<>();
+            statuses.forEach((status, count) -> counts.put(status, count.sum()));
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.lls.rbac.security;
+
+import com.lls.rbac.RbacApplication;
+import com.lls.rbac.entity.Permission;
+import com.lls.rbac.entity.Role;
+import com.lls.rbac.entity.User;
+import com.lls.rbac.repository.PermissionRepository;
+import com.lls.rbac.repository.RoleRepository;
+import com.lls.rbac.repository.UserRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Two application contexts share one H2 database, standing in for two nodes of a cluster
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AuthorizationVersionTest {
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    void startNodes() {
+        nodeA = startNode();
+        nodeB = startNode();
+
+        inTransaction(nodeA, () -> {
+            Permission read = new Permission();
+            read.setName("USER_READ");
+            Permission write = new Permission();
+            write.setName("USER_WRITE");
+            nodeA.getBean(PermissionRepository.class).saveAll(List.of(read, write));
+
+            Role role = new Role();
+            role.setName("USER");
+            role.getPermissions().add(read);
+            nodeA.getBean(RoleRepository.class).save(role);
+
+            User user = new User();
+            user.setUsername("alice");
+            user.setEmail("alice@example.com");
+            user.setPassword("unused");
+            user.getRoles().add(role);
+            nodeA.getBean(UserRepository.class).save(user);
+        });
+    }
+
+    @AfterAll
+    void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @Test
+    void roleChangeOnOneNodeInvalidatesTheOther() {
+        AuthorizationIndex indexB = nodeB.getBean(AuthorizationIndex.class);
+        await().atMost(Duration.ofSeconds(5)).until(() -> indexB.authoritiesOf(List.of("alice")).containsKey("alice"));
+        assertFalse(indexB.isGranted("alice", "USER_WRITE"));
+
+        long before = nodeA.getBean(AuthorizationVersionService.class).seenVersion();
+        inTransaction(nodeA, () -> {
+            Role role = nodeA.getBean(RoleRepository.class).findByName("USER").orElseThrow();
+            role.getPermissions().add(nodeA.getBean(PermissionRepository.class).findByName("USER_WRITE").orElseThrow());
+        });
+
+        // The writing node catches up on commit, the other one on its next poll
+        assertTrue(nodeA.getBean(AuthorizationVersionService.class).seenVersion() > before);
+        await().atMost(Duration.ofSeconds(5)).until(() -> indexB.isGranted("alice", "USER_WRITE"));
+        assertEquals(Set.of("ROLE_USER", "USER_READ", "USER_WRITE"), indexB.authoritiesOf(List.of("alice")).get("alice"));
+    }
+
+    @Test
+    void rolledBackChangeLeavesTheVersionAlone() {
+        AuthorizationVersionService versions = nodeA.getBean(AuthorizationVersionService.class);
+        versions.poll();
+        long before = versions.seenVersion();
+
+        nodeA.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+            Role role = new Role();
+            role.setName("AUDITOR");
+            nodeA.getBean(RoleRepository.class).saveAndFlush(role);
+            status.setRollbackOnly();
+        });
+
+        versions.poll();
+        assertEquals(before, versions.seenVersion());
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(RbacApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:authzversion;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--rbac.authz.version.poll-interval-ms=100");
+    }
+
+    private static void inTransaction(ConfigurableApplicationContext node, Runnable work) {
+        node.getBean(TransactionTemplate.class).executeWithoutResult(status -> work.run());
+    }
+}
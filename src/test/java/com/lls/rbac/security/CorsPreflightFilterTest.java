@@ -0,0 +1,88 @@
+package com.lls.rbac.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.cors.CorsConfiguration;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CorsPreflightFilterTest {
+
+    private final CorsPreflightFilter filter = new CorsPreflightFilter(configuration());
+
+    private static CorsConfiguration configuration() {
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.setAllowedOrigins(List.of("https://app.example.com/"));
+        configuration.setAllowedOriginPatterns(List.of("https://*.example.org", "http://localhost:[*]", "http://127.0.0.1:[3000,3001]"));
+        configuration.setAllowedMethods(List.of("GET", "POST"));
+        configuration.setAllowedHeaders(List.of("Content-Type", "Authorization"));
+        configuration.setAllowCredentials(true);
+        configuration.setMaxAge(600L);
+        return configuration;
+    }
+
+    @Test
+    void answersAnAllowedPreflightWithoutCallingTheChain() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = preflight("https://app.example.com", "post", "content-type, Authorization", chain);
+
+        assertEquals(200, response.getStatus());
+        assertNull(chain.getRequest(), "the chain must not run for a preflight");
+        assertEquals("https://app.example.com", response.getHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN));
+        assertEquals("GET, POST", response.getHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS));
+        assertEquals("Content-Type, Authorization", response.getHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS));
+        assertEquals("true", response.getHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS));
+        assertEquals("600", response.getHeader(HttpHeaders.ACCESS_CONTROL_MAX_AGE));
+        assertTrue(response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ORIGIN));
+    }
+
+    @Test
+    void matchesOriginPatternsAndPorts() throws Exception {
+        assertEquals(200, preflight("https://api.example.org", "GET", null, new MockFilterChain()).getStatus());
+        assertEquals(200, preflight("http://localhost:8080", "GET", null, new MockFilterChain()).getStatus());
+        assertEquals(200, preflight("http://localhost", "GET", null, new MockFilterChain()).getStatus());
+        assertEquals(200, preflight("http://127.0.0.1:3001", "GET", null, new MockFilterChain()).getStatus());
+
+        assertEquals(403, preflight("http://127.0.0.1:4000", "GET", null, new MockFilterChain()).getStatus());
+        assertEquals(403, preflight("https://example.org.evil.com", "GET", null, new MockFilterChain()).getStatus());
+        assertEquals(403, preflight("https://app.example.com.evil.com", "GET", null, new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void rejectsDisallowedMethodsAndHeaders() throws Exception {
+        MockHttpServletResponse method = preflight("https://app.example.com", "DELETE", null, new MockFilterChain());
+        assertEquals(403, method.getStatus());
+        assertNull(method.getHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN));
+
+        assertEquals(403, preflight("https://app.example.com", "GET", "X-Custom", new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void passesOtherRequestsThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("OPTIONS", "/api/auth/login");
+        request.addHeader(HttpHeaders.ORIGIN, "https://app.example.com");
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertNotNull(chain.getRequest());
+    }
+
+    private MockHttpServletResponse preflight(String origin, String method, String headers, MockFilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("OPTIONS", "/api/auth/login");
+        request.addHeader(HttpHeaders.ORIGIN, origin);
+        request.addHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, method);
+        if (headers != null) {
+            request.addHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, headers);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
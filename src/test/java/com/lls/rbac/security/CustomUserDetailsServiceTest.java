@@ -0,0 +1,202 @@
+package com.lls.rbac.security;
+
+import com.lls.rbac.datasource.ReadYourWritesTracker;
+import com.lls.rbac.directory.DirectoryEntry;
+import com.lls.rbac.directory.UserDirectory;
+import com.lls.rbac.entity.User;
+import com.lls.rbac.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomUserDetailsServiceTest {
+
+    private static final int BURST = 32;
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final RoleHierarchyIndex roleHierarchyIndex = mock(RoleHierarchyIndex.class);
+    private final UserDirectory userDirectory = mock(UserDirectory.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        when(roleHierarchyIndex.authoritiesFor(any())).thenReturn(Set.of());
+    }
+
+    @Test
+    void concurrentLookupsForOneUserRunOneQuery() throws Exception {
+        User alice = user("alice");
+        when(userRepository.findForAuthenticationByUsername("alice")).thenAnswer(invocation -> {
+            release.await();
+            return Optional.of(alice);
+        });
+        CustomUserDetailsService service = service(5000);
+
+        List<Future<UserDetails>> results = burst(() -> service.loadUserByUsername("alice"));
+        for (Future<UserDetails> result : results) {
+            assertSame(alice, result.get(5, TimeUnit.SECONDS));
+        }
+        verify(userRepository, times(1)).findForAuthenticationByUsername("alice");
+
+        // Nothing is cached once the burst is over
+        service.loadUserByUsername("alice");
+        verify(userRepository, times(2)).findForAuthenticationByUsername("alice");
+    }
+
+    @Test
+    void everyWaiterSeesTheLoadersFailure() throws Exception {
+        when(userRepository.findForAuthenticationByUsername("ghost")).thenAnswer(invocation -> {
+            release.await();
+            return Optional.empty();
+        });
+        CustomUserDetailsService service = service(5000);
+
+        List<Future<UserDetails>> results = burst(() -> service.loadUserByUsername("ghost"));
+        for (Future<UserDetails> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("Expected the lookup to fail");
+            } catch (ExecutionException e) {
+                assertInstanceOf(UsernameNotFoundException.class, e.getCause());
+            }
+        }
+        verify(userRepository, times(1)).findForAuthenticationByUsername("ghost");
+    }
+
+    @Test
+    void waitersGiveUpAfterTheTimeout() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        when(userRepository.findForAuthenticationByUsername("slow")).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.of(user("slow"));
+        });
+        CustomUserDetailsService service = service(50);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<UserDetails> leader = executor.submit(() -> service.loadUserByUsername("slow"));
+            loading.await(5, TimeUnit.SECONDS);
+            assertThrows(AuthenticationServiceException.class, () -> service.loadUserByUsername("slow"));
+
+            release.countDown();
+            leader.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void principalCarriesResolvedAuthoritiesButNoPassword() {
+        User bob = user("bob");
+        bob.setId(7L);
+        bob.setPassword("{bcrypt}$2a$10$hash");
+        when(userRepository.findForAuthenticationByUsername("bob")).thenReturn(Optional.of(bob));
+        when(roleHierarchyIndex.authoritiesFor(any())).thenReturn(Set.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+        AuthenticatedUser principal = service(5000).loadPrincipal("bob");
+        assertEquals(7L, principal.id());
+        assertEquals("bob", principal.getUsername());
+        assertNull(principal.getPassword());
+        assertEquals(Set.of(new SimpleGrantedAuthority("ROLE_USER")), principal.getAuthorities());
+        assertThrows(UnsupportedOperationException.class, () -> principal.getAuthorities().clear());
+    }
+
+    @Test
+    void directoryHitSkipsTheDatabase() {
+        when(userDirectory.find("carol")).thenReturn(new DirectoryEntry(9L, "carol", "{bcrypt}$2a$10$hash",
+                true, true, false, null, true, new long[]{3L}));
+        when(roleHierarchyIndex.authoritiesFor(any())).thenReturn(Set.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+        UserDetails carol = service(5000).loadUserByUsername("carol");
+        assertEquals("{bcrypt}$2a$10$hash", carol.getPassword());
+        assertFalse(carol.isAccountNonLocked());
+        assertEquals(Set.of(new SimpleGrantedAuthority("ROLE_USER")), Set.copyOf(carol.getAuthorities()));
+        verify(userRepository, never()).findForAuthenticationByUsername(any());
+    }
+
+    // A registration made on another node is not among this node's recent writes, so a miss on a replica
+    // is looked up again on the primary; without replicas a miss is final
+    @Test
+    void missOnAReplicaIsRetriedOnThePrimary() {
+        ReadYourWritesTracker tracker = new ReadYourWritesTracker(5000);
+        User dave = user("dave");
+        when(userRepository.findForAuthenticationByUsername("dave"))
+                .thenAnswer(invocation -> tracker.mustReadPrimary() ? Optional.of(dave) : Optional.empty());
+        CustomUserDetailsService service = new CustomUserDetailsService(userRepository, roleHierarchyIndex, tracker, userDirectory, 5000);
+
+        assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("dave"));
+        verify(userRepository, times(1)).findForAuthenticationByUsername("dave");
+
+        tracker.markReplicasInUse();
+        assertSame(dave, service.loadUserByUsername("dave"));
+        verify(userRepository, times(3)).findForAuthenticationByUsername("dave");
+        assertFalse(tracker.mustReadPrimary());
+    }
+
+    private CustomUserDetailsService service(long timeoutMs) {
+        return new CustomUserDetailsService(userRepository, roleHierarchyIndex,
+                new ReadYourWritesTracker(5000), userDirectory, timeoutMs);
+    }
+
+    // Starts the burst, lets the single query through only once every caller is parked, and collects the results
+    private List<Future<UserDetails>> burst(Callable<UserDetails> lookup) {
+        ExecutorService executor = Executors.newFixedThreadPool(BURST);
+        List<Thread> threads = new ArrayList<>();
+        List<Future<UserDetails>> results = new ArrayList<>();
+        for (int i = 0; i < BURST; i++) {
+            results.add(executor.submit(() -> {
+                synchronized (threads) {
+                    threads.add(Thread.currentThread());
+                }
+                return lookup.call();
+            }));
+        }
+        await().atMost(5, TimeUnit.SECONDS).until(() -> {
+            synchronized (threads) {
+                return threads.size() == BURST && threads.stream().allMatch(t ->
+                        t.getState() == Thread.State.WAITING || t.getState() == Thread.State.TIMED_WAITING);
+            }
+        });
+        release.countDown();
+        executor.shutdown();
+        return results;
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setRoles(Set.of());
+        return user;
+    }
+}
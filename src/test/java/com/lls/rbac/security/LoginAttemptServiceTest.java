@@ -0,0 +1,117 @@
+package com.lls.rbac.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginAttemptServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:loginattempts;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("CREATE TABLE users (username VARCHAR(50) PRIMARY KEY, is_account_non_locked BOOLEAN, "
+                + "lock_expires_at TIMESTAMP, updated_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO users (username, is_account_non_locked) VALUES ('alice', TRUE), ('bob', TRUE)");
+        jdbcTemplate.update("INSERT INTO users (username, is_account_non_locked) VALUES ('mallory', FALSE)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE users");
+    }
+
+    @Test
+    void failuresOutsideTheWindowDoNotCount() {
+        LoginAttemptService service = new LoginAttemptService(jdbcTemplate, 3, 1, 60);
+
+        service.recordFailure("alice");
+        service.recordFailure("alice");
+        // A 1 s window in 16 buckets; both failures have slid out once it has fully passed
+        sleep(1200);
+        service.recordFailure("alice");
+        service.recordFailure("alice");
+        assertFalse(service.isLocked("alice"));
+
+        service.recordFailure("alice");
+        assertTrue(service.isLocked("alice"));
+        assertFalse(service.isLocked("bob"));
+    }
+
+    @Test
+    void successClearsTheFailures() {
+        LoginAttemptService service = new LoginAttemptService(jdbcTemplate, 3, 60, 60);
+
+        service.recordFailure("alice");
+        service.recordFailure("alice");
+        service.recordSuccess("alice");
+        service.recordFailure("alice");
+        service.recordFailure("alice");
+        assertFalse(service.isLocked("alice"));
+    }
+
+    @Test
+    void locksExpireAndFlushClearsOnlyTemporaryLocks() {
+        LoginAttemptService service = new LoginAttemptService(jdbcTemplate, 2, 60, 1);
+
+        service.recordFailure("alice");
+        service.recordFailure("alice");
+        assertTrue(service.isLocked("alice"));
+        // Nothing is written until the flush
+        assertEquals(Boolean.TRUE, row("alice").get("is_account_non_locked"));
+
+        service.flush();
+        Map<String, Object> locked = row("alice");
+        assertEquals(Boolean.FALSE, locked.get("is_account_non_locked"));
+        assertNotNull(locked.get("lock_expires_at"));
+        assertNotNull(locked.get("updated_at"));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> !service.isLocked("alice"));
+        // Unlocking an account locked by an administrator is never queued, and would not apply anyway
+        service.recordSuccess("mallory");
+        service.flush();
+        Map<String, Object> unlocked = row("alice");
+        assertEquals(Boolean.TRUE, unlocked.get("is_account_non_locked"));
+        assertNull(unlocked.get("lock_expires_at"));
+        assertEquals(Boolean.FALSE, row("mallory").get("is_account_non_locked"));
+    }
+
+    @Test
+    void failedFlushIsRetried() {
+        LoginAttemptService service = new LoginAttemptService(jdbcTemplate, 1, 60, 60);
+        service.recordFailure("bob");
+
+        jdbcTemplate.execute("ALTER TABLE users RENAME TO users_offline");
+        service.flush();
+        jdbcTemplate.execute("ALTER TABLE users_offline RENAME TO users");
+        assertEquals(Boolean.TRUE, row("bob").get("is_account_non_locked"));
+
+        service.flush();
+        assertEquals(Boolean.FALSE, row("bob").get("is_account_non_locked"));
+    }
+
+    private Map<String, Object> row(String username) {
+        return jdbcTemplate.queryForMap("SELECT is_account_non_locked, lock_expires_at, updated_at FROM users WHERE username = ?", username);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
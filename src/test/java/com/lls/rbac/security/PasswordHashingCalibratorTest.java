@@ -0,0 +1,69 @@
+package com.lls.rbac.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PasswordHashingCalibratorTest {
+
+    @Test
+    void picksTheStrongestStrengthWithinTheLatencyTarget() {
+        // 50 ms at strength 10: 11 costs 100 ms and still fits, 12 would cost 200 ms
+        Calibrator calibrator = new Calibrator(0, 100, 0, 10, 16, 50);
+        assertEquals(11, calibrator.bcryptStrength());
+        // Strength 12 is predicted from 11 instead of measured
+        assertEquals(List.of(4, 10, 11), calibrator.measured);
+    }
+
+    @Test
+    void thePerCoreBudgetTightensTheTarget() {
+        // 20 hashes per second per core leaves 50 ms per verification
+        assertEquals(10, new Calibrator(0, 100, 20, 10, 16, 50).bcryptStrength());
+    }
+
+    @Test
+    void neverGoesBelowTheFloor() {
+        assertEquals(10, new Calibrator(0, 1, 0, 10, 16, 50).bcryptStrength());
+    }
+
+    @Test
+    void neverGoesAboveTheCeiling() {
+        assertEquals(12, new Calibrator(0, 60_000, 0, 10, 12, 1).bcryptStrength());
+    }
+
+    @Test
+    void aConfiguredStrengthSkipsCalibration() {
+        Calibrator calibrator = new Calibrator(13, 100, 10, 10, 16, 50);
+        assertEquals(13, calibrator.bcryptStrength());
+        assertEquals(List.of(), calibrator.measured);
+    }
+
+    @Test
+    void measuresRealHashing() {
+        // Cheap strengths only, to keep the test fast
+        int strength = new PasswordHashingCalibrator(0, 60_000, 0, 4, 5).bcryptStrength();
+        assertEquals(5, strength);
+    }
+
+    // Costs double with every extra round, as they do for BCrypt
+    private static final class Calibrator extends PasswordHashingCalibrator {
+
+        private final double millisAtTen;
+        private final List<Integer> measured = new ArrayList<>();
+
+        Calibrator(int fixedStrength, long targetLatencyMillis, int maxHashesPerSecondPerCore,
+                   int minStrength, int maxStrength, double millisAtTen) {
+            super(fixedStrength, targetLatencyMillis, maxHashesPerSecondPerCore, minStrength, maxStrength);
+            this.millisAtTen = millisAtTen;
+        }
+
+        @Override
+        double measure(int strength) {
+            measured.add(strength);
+            return millisAtTen * Math.pow(2, strength - 10);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.lls.rbac.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PublicRouteRegistryTest {
+
+    private final PublicRouteRegistry registry = new PublicRouteRegistry();
+
+    @Test
+    void prefixRoutesMatchThemselvesAndEverythingBelow() {
+        assertTrue(registry.isPublic("/api/auth"));
+        assertTrue(registry.isPublic("/api/auth/login"));
+        assertTrue(registry.isPublic("/api/public/a/b/c"));
+        assertTrue(registry.isPublic("/swagger-ui/index.html"));
+
+        // Whole segments only
+        assertFalse(registry.isPublic("/api/authx"));
+        assertFalse(registry.isPublic("/api/authx/login"));
+        assertFalse(registry.isPublic("/api"));
+    }
+
+    @Test
+    void exactRoutesMatchOnlyThemselves() {
+        assertTrue(registry.isPublic("/api/health/liveness"));
+        assertTrue(registry.isPublic("/.well-known/jwks.json"));
+        assertTrue(registry.isPublic("/swagger-ui.html"));
+
+        assertFalse(registry.isPublic("/api/health"));
+        assertFalse(registry.isPublic("/api/health/liveness/extra"));
+        assertFalse(registry.isPublic("/api/health/readinessx"));
+    }
+
+    @Test
+    void protectedRoutesStayAuthenticatedUnderAPublicPrefix() {
+        assertFalse(registry.isPublic("/api/auth/introspect"));
+        assertTrue(registry.isPublic("/api/auth/login"));
+    }
+
+    @Test
+    void rejectsMalformedPaths() {
+        assertFalse(registry.isPublic((String) null));
+        assertFalse(registry.isPublic(""));
+        assertFalse(registry.isPublic("api/auth/login"));
+        assertFalse(registry.isPublic("/"));
+    }
+
+    @Test
+    void stripsTheContextPath() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/rbac/api/auth/login");
+        request.setContextPath("/rbac");
+        assertTrue(registry.isPublic(request));
+
+        MockHttpServletRequest admin = new MockHttpServletRequest("GET", "/rbac/api/admin/test");
+        admin.setContextPath("/rbac");
+        assertFalse(registry.isPublic(admin));
+    }
+}
@@ -0,0 +1,124 @@
+package com.lls.rbac.security;
+
+import com.lls.rbac.entity.Permission;
+import com.lls.rbac.entity.Role;
+import com.lls.rbac.repository.RoleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RoleHierarchyIndexTest {
+
+    private final RoleRepository roleRepository = mock(RoleRepository.class);
+    private final RoleHierarchyIndex index = new RoleHierarchyIndex(roleRepository, 60_000);
+
+    // ADMIN > MODERATOR > USER: each role holds everything below it, and nothing above
+    @Test
+    void closesOverAChain() {
+        Role admin = role(1, "ADMIN", null, "ADMIN_READ");
+        Role moderator = role(2, "MODERATOR", admin, "USER_WRITE");
+        Role user = role(3, "USER", moderator, "USER_READ");
+        when(roleRepository.findAllWithPermissions()).thenReturn(List.of(user, admin, moderator));
+
+        assertEquals(Set.of("ROLE_ADMIN", "ROLE_MODERATOR", "ROLE_USER", "ADMIN_READ", "USER_WRITE", "USER_READ"),
+                names(index.authoritiesFor(List.of(admin))));
+        assertEquals(Set.of("ROLE_MODERATOR", "ROLE_USER", "USER_WRITE", "USER_READ"), names(index.authoritiesForRoleNames(List.of("MODERATOR"))));
+        assertEquals(Set.of("ROLE_USER", "USER_READ"), names(index.authoritiesFor(List.of(user))));
+        assertEquals(3, index.roleCount());
+    }
+
+    @Test
+    void unitesSeveralDirectRoles() {
+        Role auditor = role(1, "AUDITOR", null, "AUDIT_READ");
+        Role support = role(2, "SUPPORT", null, "USER_READ");
+        Role trainee = role(3, "TRAINEE", support, "DOCS_READ");
+        when(roleRepository.findAllWithPermissions()).thenReturn(List.of(auditor, support, trainee));
+
+        Set<GrantedAuthority> combined = index.authoritiesForRoleNames(List.of("AUDITOR", "SUPPORT"));
+        assertEquals(Set.of("ROLE_AUDITOR", "ROLE_SUPPORT", "ROLE_TRAINEE", "AUDIT_READ", "USER_READ", "DOCS_READ"), names(combined));
+        // Memoised per set of direct roles, whatever order they come in
+        assertSame(combined, index.authoritiesForRoleNames(List.of("SUPPORT", "AUDITOR")));
+        // Unknown roles grant nothing and don't disturb the rest
+        assertEquals(Set.of("ROLE_TRAINEE", "DOCS_READ"), names(index.authoritiesForRoleNames(List.of("TRAINEE", "GHOST"))));
+        assertEquals(Set.of(), index.authoritiesForRoleNames(List.of("GHOST")));
+    }
+
+    @Test
+    void rejectsACycle() {
+        Role a = role(1, "A", null, "P1");
+        Role b = role(2, "B", a, "P2");
+        a.setParent(b);
+        when(roleRepository.findAllWithPermissions()).thenReturn(List.of(a, b));
+
+        assertThrows(IllegalStateException.class, index::reload);
+    }
+
+    @Test
+    void reloadPicksUpChanges() {
+        Role admin = role(1, "ADMIN", null, "ADMIN_READ");
+        Role user = role(2, "USER", null, "USER_READ");
+        when(roleRepository.findAllWithPermissions()).thenReturn(List.of(admin, user));
+        assertEquals(Set.of("ROLE_USER", "USER_READ"), names(index.authoritiesFor(List.of(user))));
+
+        Role reparented = role(2, "USER", admin, "USER_READ");
+        when(roleRepository.findAllWithPermissions()).thenReturn(List.of(admin, reparented));
+        index.onAuthorizationChanged();
+        assertEquals(Set.of("ROLE_ADMIN", "ROLE_USER", "ADMIN_READ", "USER_READ"), names(index.authoritiesFor(List.of(admin))));
+    }
+
+    // An empty or stale snapshot must not stick: unknown roles trigger a re-read, but not more than once per interval
+    @Test
+    void reloadsForUnknownRolesAtMostOncePerInterval() throws Exception {
+        Role user = role(1, "USER", null, "USER_READ");
+        when(roleRepository.findAllWithPermissions()).thenReturn(List.of()).thenReturn(List.of(user));
+        RoleHierarchyIndex index = new RoleHierarchyIndex(roleRepository, 200);
+
+        assertEquals(0, index.roleCount());
+        assertEquals(Set.of(), index.authoritiesFor(List.of(user)));
+        verify(roleRepository, times(1)).findAllWithPermissions();
+
+        Thread.sleep(250);
+        assertEquals(Set.of("ROLE_USER", "USER_READ"), names(index.authoritiesFor(List.of(user))));
+        assertEquals(1, index.roleCount());
+        assertEquals(Set.of(), index.authoritiesForRoleNames(List.of("GHOST")));
+        verify(roleRepository, times(2)).findAllWithPermissions();
+    }
+
+    @Test
+    void keepsTheCurrentSnapshotWhenAReloadFails() throws Exception {
+        Role user = role(1, "USER", null, "USER_READ");
+        when(roleRepository.findAllWithPermissions()).thenReturn(List.of(user)).thenThrow(new IllegalStateException("database down"));
+        RoleHierarchyIndex index = new RoleHierarchyIndex(roleRepository, 0);
+
+        assertEquals(Set.of(), index.authoritiesForRoleNames(List.of("GHOST")));
+        assertEquals(Set.of("ROLE_USER", "USER_READ"), names(index.authoritiesFor(List.of(user))));
+    }
+
+    private static Role role(long id, String name, Role parent, String... permissions) {
+        Role role = new Role();
+        role.setId(id);
+        role.setName(name);
+        role.setParent(parent);
+        for (String permissionName : permissions) {
+            Permission permission = new Permission();
+            permission.setName(permissionName);
+            role.addPermission(permission);
+        }
+        return role;
+    }
+
+    private static Set<String> names(Set<GrantedAuthority> authorities) {
+        return authorities.stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet());
+    }
+}
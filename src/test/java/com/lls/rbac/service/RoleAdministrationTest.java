@@ -0,0 +1,187 @@
+package com.lls.rbac.service;
+
+import com.lls.rbac.dto.KeysetPageDTO;
+import com.lls.rbac.repository.projection.RoleMemberView;
+import com.lls.rbac.repository.projection.RoleSummaryView;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Role administration queries against a real schema: set-based assignments and keyset pages. Each test works
+// on its own role or permission, so they don't depend on each other's order.
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:roleadmin;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+@ActiveProfiles("test")
+class RoleAdministrationTest {
+
+    private static final int USERS = 1500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RoleAssignmentService roleAssignmentService;
+
+    @Autowired
+    private RoleMembershipService roleMembershipService;
+
+    @BeforeAll
+    void seed() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            rows.add(new Object[]{username(i), username(i) + "@roleadmin.test"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, email, password, is_enabled, is_account_non_expired, "
+                + "is_account_non_locked, is_credentials_non_expired) VALUES (?, ?, 'x', TRUE, TRUE, TRUE, TRUE)", rows);
+        jdbcTemplate.update("INSERT INTO roles (name) VALUES ('ASSIGNED'), ('REVOKED'), ('GRANTEE_A'), ('GRANTEE_B'), "
+                + "('PAGED'), ('CROWDED'), ('HOLDER_A'), ('HOLDER_B'), ('HOLDER_C')");
+        jdbcTemplate.update("INSERT INTO permissions (name) VALUES ('GRANTED'), ('HELD')");
+        // Every third seeded user, so member ids have gaps
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) SELECT u.id, r.id FROM users u, roles r "
+                + "WHERE r.name = 'PAGED' AND MOD(u.id, 3) = 0");
+        jdbcTemplate.update("INSERT INTO role_permissions (role_id, permission_id) SELECT r.id, p.id FROM roles r, permissions p "
+                + "WHERE p.name = 'HELD' AND r.name LIKE 'HOLDER_%'");
+    }
+
+    // More names than one chunk holds, with duplicates, unknown users and existing members mixed in
+    @Test
+    void assignsOnlyNewMembers() {
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) SELECT u.id, r.id FROM users u, roles r "
+                + "WHERE r.name = 'ASSIGNED' AND u.username IN ('member-0', 'member-1', 'member-2')");
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            names.add(username(i));
+        }
+        names.add("member-0");
+        names.add("nobody");
+
+        assertEquals(USERS - 3, roleAssignmentService.assignRole("ASSIGNED", names));
+        assertEquals(USERS, members("ASSIGNED"));
+        assertNotNull(jdbcTemplate.queryForObject("SELECT updated_at FROM users WHERE username = ?", Object.class, username(USERS - 1)));
+        assertEquals(0, roleAssignmentService.assignRole("ASSIGNED", names));
+    }
+
+    @Test
+    void revokesOnlyExistingMembers() {
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) SELECT u.id, r.id FROM users u, roles r "
+                + "WHERE r.name = 'REVOKED' AND u.username IN ('member-10', 'member-11')");
+
+        assertEquals(2, roleAssignmentService.revokeRole("REVOKED", List.of("member-10", "member-11", "member-12", "nobody")));
+        assertEquals(0, members("REVOKED"));
+    }
+
+    @Test
+    void grantsAndRevokesPermissions() {
+        assertEquals(2, roleAssignmentService.grantPermission("GRANTED", List.of("GRANTEE_A", "GRANTEE_B", "GHOST")));
+        assertEquals(0, roleAssignmentService.grantPermission("GRANTED", List.of("GRANTEE_A")));
+        assertEquals(1, roleAssignmentService.revokePermission("GRANTED", List.of("GRANTEE_B")));
+        assertEquals(List.of("GRANTEE_A"), jdbcTemplate.queryForList("SELECT r.name FROM role_permissions rp "
+                + "JOIN roles r ON r.id = rp.role_id JOIN permissions p ON p.id = rp.permission_id WHERE p.name = 'GRANTED'", String.class));
+    }
+
+    @Test
+    void rejectsUnknownRoles() {
+        assertThrows(EntityNotFoundException.class, () -> roleAssignmentService.assignRole("GHOST", List.of("member-0")));
+    }
+
+    // Walking the pages visits every member exactly once, in id order, and the last page says so
+    @Test
+    void pagesThroughMembersByKeyset() {
+        List<Long> expected = jdbcTemplate.queryForList("SELECT ur.user_id FROM user_roles ur JOIN roles r ON r.id = ur.role_id "
+                + "WHERE r.name = 'PAGED' ORDER BY ur.user_id", Long.class);
+        List<Long> seen = new ArrayList<>();
+        long after = 0;
+        int pages = 0;
+        KeysetPageDTO<RoleMemberView> page;
+        do {
+            page = roleMembershipService.members("PAGED", after, 100, RoleMembershipService.CountMode.NONE);
+            page.getItems().forEach(member -> seen.add(member.getId()));
+            assertNull(page.getTotal());
+            pages++;
+            if (page.getNextAfter() != null) {
+                after = page.getNextAfter();
+            }
+        } while (page.getNextAfter() != null);
+
+        assertEquals(expected, seen);
+        // 500 members fill five pages exactly; only the empty sixth one can tell there is nothing more
+        assertEquals(expected.size() / 100 + 1, pages);
+        assertEquals(USERS / 3, expected.size());
+    }
+
+    @Test
+    void countsMembersOnRequest() {
+        KeysetPageDTO<RoleMemberView> exact = roleMembershipService.members("PAGED", 0, 10, RoleMembershipService.CountMode.EXACT);
+        assertEquals(10, exact.getItems().size());
+        assertEquals(USERS / 3, exact.getTotal());
+        assertFalse(exact.isTotalIsLowerBound());
+
+        KeysetPageDTO<RoleMemberView> estimate = roleMembershipService.members("PAGED", 0, 10, RoleMembershipService.CountMode.ESTIMATE);
+        assertEquals(USERS / 3, estimate.getTotal());
+        assertFalse(estimate.isTotalIsLowerBound());
+
+        // Page sizes are clamped rather than rejected
+        assertEquals(RoleMembershipService.MAX_PAGE_SIZE,
+                roleMembershipService.members("PAGED", 0, 100_000, RoleMembershipService.CountMode.NONE).getItems().size());
+    }
+
+    // Past the cap an estimate stops counting and says its total is only a lower bound
+    @Test
+    void capsEstimatedCounts() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < RoleMembershipService.ESTIMATE_CAP + 1; i++) {
+            rows.add(new Object[]{"crowd-" + i, "crowd-" + i + "@roleadmin.test"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, email, password, is_enabled, is_account_non_expired, "
+                + "is_account_non_locked, is_credentials_non_expired) VALUES (?, ?, 'x', TRUE, TRUE, TRUE, TRUE)", rows);
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) SELECT u.id, r.id FROM users u, roles r "
+                + "WHERE r.name = 'CROWDED' AND u.username LIKE 'crowd-%'");
+
+        KeysetPageDTO<RoleMemberView> estimate = roleMembershipService.members("CROWDED", 0, 10, RoleMembershipService.CountMode.ESTIMATE);
+        assertEquals(RoleMembershipService.ESTIMATE_CAP, estimate.getTotal());
+        assertTrue(estimate.isTotalIsLowerBound());
+        assertEquals(RoleMembershipService.ESTIMATE_CAP + 1,
+                roleMembershipService.members("CROWDED", 0, 10, RoleMembershipService.CountMode.EXACT).getTotal());
+    }
+
+    // Roles are counted exactly even when only an estimate was asked for
+    @Test
+    void pagesThroughRolesHoldingAPermission() {
+        KeysetPageDTO<RoleSummaryView> first = roleMembershipService.rolesWithPermission("HELD", 0, 2, RoleMembershipService.CountMode.ESTIMATE);
+        assertEquals(List.of("HOLDER_A", "HOLDER_B"), first.getItems().stream().map(RoleSummaryView::getName).toList());
+        assertEquals(3, first.getTotal());
+
+        KeysetPageDTO<RoleSummaryView> second = roleMembershipService.rolesWithPermission("HELD", first.getNextAfter(), 2,
+                RoleMembershipService.CountMode.NONE);
+        assertEquals(List.of("HOLDER_C"), second.getItems().stream().map(RoleSummaryView::getName).toList());
+        assertNull(second.getNextAfter());
+        assertNull(second.getTotal());
+
+        assertThrows(EntityNotFoundException.class,
+                () -> roleMembershipService.rolesWithPermission("GHOST", 0, 10, RoleMembershipService.CountMode.NONE));
+    }
+
+    private int members(String roleName) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_roles ur JOIN roles r ON r.id = ur.role_id WHERE r.name = ?",
+                Integer.class, roleName);
+    }
+
+    private static String username(int index) {
+        return "member-" + index;
+    }
+}
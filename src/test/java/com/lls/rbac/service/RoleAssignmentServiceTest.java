@@ -0,0 +1,88 @@
+package com.lls.rbac.service;
+
+import com.lls.rbac.repository.PermissionRepository;
+import com.lls.rbac.repository.RoleRepository;
+import com.lls.rbac.repository.UserRepository;
+import com.lls.rbac.security.AuthorizationVersionService;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class RoleAssignmentServiceTest {
+
+    private final RoleRepository roleRepository = mock(RoleRepository.class);
+    private final PermissionRepository permissionRepository = mock(PermissionRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final AuthorizationVersionService authorizationVersionService = mock(AuthorizationVersionService.class);
+    private final RoleAssignmentService service = new RoleAssignmentService(roleRepository, permissionRepository,
+            userRepository, authorizationVersionService);
+
+    @Test
+    void assignsInChunksOfDistinctNames() {
+        when(roleRepository.existsByName("USER")).thenReturn(true);
+        List<Integer> chunks = new ArrayList<>();
+        when(roleRepository.addMembers(eq("USER"), anyCollection())).thenAnswer(invocation -> {
+            Collection<?> chunk = invocation.getArgument(1);
+            chunks.add(chunk.size());
+            return chunk.size();
+        });
+
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            names.add("user-" + i);
+        }
+        names.addAll(names.subList(0, 100));
+
+        assertEquals(2500, service.assignRole("USER", names));
+        assertEquals(List.of(1000, 1000, 500), chunks);
+        // One touch per chunk that changed something, one version bump for the whole request
+        verify(userRepository, times(3)).touch(anyCollection(), any());
+        verify(authorizationVersionService, times(1)).bump();
+    }
+
+    @Test
+    void announcesNothingWhenNothingChanged() {
+        when(roleRepository.existsByName("USER")).thenReturn(true);
+        when(roleRepository.removeMembers(eq("USER"), anyCollection())).thenReturn(0);
+
+        assertEquals(0, service.revokeRole("USER", List.of("alice", "bob")));
+        verify(userRepository, never()).touch(anyCollection(), any());
+        verify(authorizationVersionService, never()).bump();
+    }
+
+    // Role-permission grants don't change any user row, so nothing is touched
+    @Test
+    void grantsPermissionsWithoutTouchingUsers() {
+        when(permissionRepository.existsByName("USER_READ")).thenReturn(true);
+        when(permissionRepository.grantToRoles(eq("USER_READ"), anyCollection())).thenReturn(2);
+
+        assertEquals(2, service.grantPermission("USER_READ", List.of("USER", "MODERATOR", "USER")));
+        verify(permissionRepository).grantToRoles("USER_READ", List.of("USER", "MODERATOR"));
+        verifyNoInteractions(userRepository);
+        verify(authorizationVersionService).bump();
+    }
+
+    @Test
+    void rejectsUnknownTargetsBeforeAnyStatement() {
+        assertThrows(EntityNotFoundException.class, () -> service.assignRole("GHOST", List.of("alice")));
+        assertThrows(EntityNotFoundException.class, () -> service.revokePermission("GHOST", List.of("USER")));
+        verify(roleRepository, never()).addMembers(any(), anyCollection());
+        verify(permissionRepository, never()).revokeFromRoles(any(), anyCollection());
+        verifyNoInteractions(authorizationVersionService);
+    }
+}
@@ -0,0 +1,96 @@
+package com.lls.rbac.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class UserActivityTrackerTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private UserActivityTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = spy(new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:useractivity;DB_CLOSE_DELAY=-1")));
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, last_login_at TIMESTAMP, last_seen_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO users (id) VALUES (1), (2), (3)");
+        tracker = new UserActivityTracker(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE users");
+    }
+
+    @Test
+    void coalescesActivityIntoOneRowUpdatePerUser() {
+        tracker.recordLogin(1L);
+        for (int i = 0; i < 100; i++) {
+            tracker.recordSeen(1L);
+            tracker.recordSeen(2L);
+        }
+        tracker.recordSeen(null);
+        tracker.flush();
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), any(), eq(2), any());
+        Map<String, Object> alice = row(1);
+        assertNotNull(alice.get("last_login_at"));
+        assertFalse(((Timestamp) alice.get("last_seen_at")).before((Timestamp) alice.get("last_login_at")));
+        assertNull(row(2).get("last_login_at"));
+        assertNotNull(row(2).get("last_seen_at"));
+        assertNull(row(3).get("last_seen_at"));
+    }
+
+    @Test
+    void seenAloneKeepsTheLastLogin() {
+        tracker.recordLogin(1L);
+        tracker.flush();
+        Object lastLogin = row(1).get("last_login_at");
+
+        tracker.recordSeen(1L);
+        tracker.flush();
+        assertEquals(lastLogin, row(1).get("last_login_at"));
+    }
+
+    @Test
+    void flushesNothingWhenIdle() {
+        tracker.flush();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(), anyInt(), any());
+    }
+
+    @Test
+    void failedFlushIsRetriedWithLaterActivityMerged() {
+        tracker.recordLogin(1L);
+        jdbcTemplate.execute("ALTER TABLE users RENAME TO users_offline");
+        tracker.flush();
+        jdbcTemplate.execute("ALTER TABLE users_offline RENAME TO users");
+        assertNull(row(1).get("last_login_at"));
+
+        tracker.recordSeen(1L);
+        tracker.flush();
+        assertNotNull(row(1).get("last_login_at"));
+        assertNotNull(row(1).get("last_seen_at"));
+    }
+
+    private Map<String, Object> row(long id) {
+        return jdbcTemplate.queryForMap("SELECT last_login_at, last_seen_at FROM users WHERE id = ?", id);
+    }
+}
@@ -0,0 +1,65 @@
+package com.lls.rbac.service;
+
+import com.lls.rbac.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserAvailabilityServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private JdbcTemplate jdbcTemplate;
+    private UserAvailabilityService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:availability;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, username VARCHAR(50), email VARCHAR(100), "
+                + "updated_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO users (username, email, updated_at) VALUES ('alice', 'alice@test', CURRENT_TIMESTAMP)");
+        service = new UserAvailabilityService(userRepository, jdbcTemplate, 0.01, 5000);
+        service.build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE users");
+    }
+
+    @Test
+    void pollPicksUpUsersRegisteredOnOtherNodes() {
+        when(userRepository.existsByUsername("zoe")).thenReturn(true);
+        when(userRepository.existsByEmail("zoe@test")).thenReturn(true);
+        assertTrue(service.isUsernameAvailable("zoe"));
+        verify(userRepository, never()).existsByUsername(anyString());
+
+        jdbcTemplate.update("INSERT INTO users (username, email, updated_at) VALUES ('zoe', 'zoe@test', CURRENT_TIMESTAMP)");
+        service.applyRegistrations();
+        // The filter now sends both lookups to the database, which has the user
+        assertFalse(service.isUsernameAvailable("zoe"));
+        assertFalse(service.isEmailAvailable("zoe@test"));
+    }
+
+    @Test
+    void failedPollIsRetried() {
+        when(userRepository.existsByUsername("zoe")).thenReturn(true);
+        jdbcTemplate.update("INSERT INTO users (username, email, updated_at) VALUES ('zoe', 'zoe@test', CURRENT_TIMESTAMP)");
+        jdbcTemplate.execute("ALTER TABLE users RENAME TO users_offline");
+        service.applyRegistrations();
+        jdbcTemplate.execute("ALTER TABLE users_offline RENAME TO users");
+        assertTrue(service.isUsernameAvailable("zoe"));
+
+        service.applyRegistrations();
+        assertFalse(service.isUsernameAvailable("zoe"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.lls.rbac.support;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Counts the JDBC statements each HTTP request executes. The application's DataSource is wrapped so every
+// execute* call on a statement is counted against the request running on that thread; background jobs
+// (health checks, version polling, activity flushes) run on their own threads and are not counted.
+//
+// Import into a MockMvc test and assert per request:
+//   mockMvc.perform(post("/api/auth/login")...).andExpect(StatementCounting.atMost(2));
+@TestConfiguration(proxyBeanMethods = false)
+public class StatementCounting {
+
+    public static final String COUNT_ATTRIBUTE = StatementCounting.class.getName() + ".count";
+
+    private static final ThreadLocal<int[]> CURRENT = new ThreadLocal<>();
+
+    public static ResultMatcher atMost(int statements) {
+        return result -> {
+            Object counted = result.getRequest().getAttribute(COUNT_ATTRIBUTE);
+            assertTrue(counted != null, "Request was not counted; is StatementCounting imported?");
+            assertTrue((int) counted <= statements, () -> describe(result.getRequest()) + " executed " + counted
+                    + " SQL statements, at most " + statements + " expected");
+        };
+    }
+
+    // The handler mapping a request was routed to, e.g. "GET /api/admin/roles/{roleName}/members"
+    public static String describe(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+
+    @Bean
+    static BeanPostProcessor statementCountingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof CountingDataSource)
+                        ? new CountingDataSource(dataSource) : bean;
+            }
+        };
+    }
+
+    @Bean
+    FilterRegistrationBean<Filter> statementCountingFilter() {
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>((request, response, chain) -> {
+            int[] previous = CURRENT.get();
+            int[] count = new int[1];
+            CURRENT.set(count);
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                CURRENT.set(previous);
+                request.setAttribute(COUNT_ATTRIBUTE, count[0]);
+            }
+        });
+        // Ahead of the security chain, so the user lookup in JwtFilter is counted too
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    private static final Set<Class<?>> STATEMENT_TYPES = Set.of(Statement.class, PreparedStatement.class, CallableStatement.class);
+
+    private static final class CountingDataSource extends DelegatingDataSource {
+
+        private CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return countingConnection(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return countingConnection(super.getConnection(username, password));
+        }
+    }
+
+    private static Connection countingConnection(Connection connection) {
+        return proxy(Connection.class, connection, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement statement) {
+                return countingStatement(statement, method.getReturnType());
+            }
+            return result;
+        });
+    }
+
+    private static Object countingStatement(Statement statement, Class<?> type) {
+        Class<?> proxied = STATEMENT_TYPES.contains(type) ? type : Statement.class;
+        return proxy(proxied, statement, (proxy, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                int[] count = CURRENT.get();
+                if (count != null) {
+                    count[0]++;
+                }
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StatementCounting.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}